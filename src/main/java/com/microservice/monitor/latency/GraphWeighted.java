@@ -1,22 +1,25 @@
 package com.microservice.monitor.latency;
 
+import com.microservice.monitor.latency.storage.GraphStorage;
+import com.microservice.monitor.latency.storage.GraphTraversal;
+import com.microservice.monitor.latency.storage.HeapGraphStorage;
 import com.microservice.monitor.latency.util.Edge;
 import com.microservice.monitor.latency.util.Node;
-import org.apache.log4j.Logger;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
+/**
+ * Graph of node and edge objects. Queries are answered by {@link GraphTraversal} over
+ * {@link HeapGraphStorage} snapshot of the graph, which is built on first query after graph is changed,
+ * so heap graph and off-heap storages share single implementation of every query.
+ */
 public class GraphWeighted {
 
-    final static Logger logger = Logger.getLogger(GraphWeighted.class);
-
     private Set<Node> nodes;
     private boolean directed;
-    private int temp = 0;
-    private HashMap<String, Integer> paths = new HashMap<>();
-    private Node startNode = null;
-    private Node endNode=null;
+    private List<Node> indexed;
+    private HeapGraphStorage storage;
+    private GraphTraversal traversal;
 
     public GraphWeighted() {
         this.directed = true;
@@ -35,6 +38,7 @@ public class GraphWeighted {
      * @param weight
      */
     public void addEdge(Node source, Node destination, int weight) {
+        storage = null;
         nodes.add(source);
         nodes.add(destination);
         checkEdgeExistance(source, destination, weight);
@@ -83,37 +87,48 @@ public class GraphWeighted {
 
     public void setNodes(Set<Node> nodes) {
         this.nodes = nodes;
+        storage = null;
     }
 
     /**
-     * Method that returns weight between two nodes
-     * @param source
-     * @param target
+     * Method that returns primitive array snapshot of the graph, snapshot is rebuilt
+     * when graph was changed through addEdge or setNodes since it was taken
      * @return
      */
-    private int getWeight(Node source, Node target) {
-        LinkedList<Edge> edges = source.getEdges();
-        for (Edge edge : edges) {
-            if (edge.getDestination() == target) {
-                return edge.getWeight();
+    public GraphStorage getStorage() {
+        if (storage == null) {
+            // Destinations outside of node set are indexed too, so every edge can be stored
+            Map<Node, Integer> index = new IdentityHashMap<>();
+            List<Node> list = new ArrayList<>();
+            for (Node node : nodes) {
+                index(node, index, list);
             }
+            for (int i = 0; i < list.size(); i++) {
+                for (Edge edge : list.get(i).getEdges()) {
+                    index(edge.getDestination(), index, list);
+                }
+            }
+            indexed = list;
+            storage = HeapGraphStorage.of(list);
+            traversal = new GraphTraversal(storage);
         }
-        return 0;
+        return storage;
     }
 
-    /**
-     * Method that returns node by node name
-     * @param name
-     * @return
-     */
-    private Node getNode(String name) {
-        for(Iterator<Node> i = nodes.iterator(); i.hasNext();) {
-            Node n = i.next();
-             if(n.getName().equalsIgnoreCase(name)){
-                return n;
-             };
+    private static void index(Node node, Map<Node, Integer> index, List<Node> list) {
+        if (!index.containsKey(node)) {
+            index.put(node, list.size());
+            list.add(node);
         }
-        return null;
+    }
+
+    private GraphTraversal traversal() {
+        getStorage();
+        return traversal;
+    }
+
+    private int indexOf(Node node) {
+        return getStorage().indexOf(node.getName());
     }
 
     /**
@@ -124,280 +139,27 @@ public class GraphWeighted {
      * @return
      */
     public int getPathWeight(String path) {
-        List<Character> list = path.chars().mapToObj(l -> (char) l).collect(Collectors.toList());
-        if(list.size()==2) {
-            // If we have only two nodes on our path - return existing edge weight
-            return getWeight(getNode(list.get(0).toString()), getNode(list.get(1).toString()));
-        } else {
-            // If we have more than two nodes on our path
-            int w = 0;
-            for(int i=0; i<list.size()-1; i++) {
-                int localWeight = getWeight(getNode(list.get(i).toString()), getNode(list.get(i + 1).toString()));
-                // Handle case of non existing connection
-                if(localWeight == 0) {
-                    logger.warn("NO SUCH TRACE: " + list.get(i).toString() + "-" + list.get(i + 1).toString());
-                    return 0;
-                }
-                w = w + getWeight(getNode(list.get(i).toString()), getNode(list.get(i + 1).toString()));
-            }
-            return w;
+        int[] indices = new int[path.length()];
+        for (int i = 0; i < path.length(); i++) {
+            indices[i] = getStorage().indexOf(String.valueOf(path.charAt(i)).toUpperCase(Locale.ROOT));
         }
-
+        return orZero(traversal().pathWeight(indices));
     }
 
     public int getNumberOfTracesBySelection(Node a, Node b, Selection selection, int i){
-        if(a.equals(b)) {
-            return getNumberOfTracesBySelection(a,selection,i);
-        }
-        return getAllPaths(a,b,selection,i).size();
-    }
-
-    public int getNumberOfTracesBySelection(Node a, Selection selection, int i){
-        return getAllPaths(a,selection,i).size();
+        return traversal().countTraces(indexOf(a), indexOf(b), selection, i);
     }
 
     /**
-     * Method that returns paths for same node excluding to itself connection,
+     * Method that returns number of paths for same node excluding to itself connection,
      * so all possible paths from ie A-A with some nodes/edges in midst.
-     * Currently this method returns paths for max number of hoops betweend nodes
-     * or for max latency between same node.
      * @param a
      * @param selection
      * @param i
      * @return
      */
-    private HashMap<String, Integer> getAllPaths(Node a, Selection selection, int i) {
-        if(isEdge(a)) {
-            return getAllPaths(a,a,selection,i);
-        }
-        logger.warn("NO SUCH TRACE: " + a.getName() + "-" + a.getName());
-        return new HashMap<>();
-    }
-
-    /**
-     * Method used for obtaining path from different nodes, so start and stop node cant be the same node
-     * use getAllPaths(Node a, Selection selection, int i) for that scenario instead.
-     * Currently this method returns paths only for exact number of hoops between two different nodes.
-     * @param start
-     * @param end
-     * @param selection
-     * @param value
-     * @return
-     */
-    private HashMap<String, Integer> getAllPaths(Node start, Node end, Selection selection, int value) {
-        //cleanup paths
-        paths.clear();
-        temp=0;
-
-        //reset start and end node
-        startNode = start;
-        endNode = end;
-
-        switch (selection) {
-            case MAX_LATENCY:
-                getPathsForSameNodeAndMaxLatency(end, value, end.getName());
-                break;
-            case MAX_HOOPS:
-                getPathsForSameNodeAndMaxNumberOfSteps(end, value, start.getName());
-                break;
-            case EXACT_HOOPS:
-                getPathsWithExactNumberOfSteps(start, end, value, start.getName());
-                break;
-        }
-
-        //if no paths found throw message
-        if(paths.size()==0){
-            logger.warn("NO SUCH TRACE: " + start.getName() + "-" + end.getName());
-        }
-
-        return paths;
-    }
-
-    /**
-     * Method that returns all paths with weights, for same source and target nodes,
-     * with maximum number of connections lower than maxLatency excluding
-     * direct connection to itself.
-     * @param target
-     * @param maxNrHoops
-     * @param prefix
-     */
-    private void getPathsForSameNodeAndMaxNumberOfSteps(Node target, int maxNrHoops, String prefix) {
-        LinkedList<Edge> edges = target.getEdges();
-
-        for (Edge e : edges) {
-            String newPrefix = prefix + e.getDestination().getName();
-            if(!e.getDestination().getName().equalsIgnoreCase(startNode.getName()) && prefix.length()<maxNrHoops){
-                getPathsForSameNodeAndMaxNumberOfSteps(e.getDestination(),maxNrHoops,newPrefix);
-            } else if(e.getDestination().getName().equalsIgnoreCase(startNode.getName())){
-                temp=getPathWeight(newPrefix);
-                paths.put(newPrefix, temp);
-                if(newPrefix.length()<maxNrHoops) {
-                    getPathsForSameNodeAndMaxNumberOfSteps(e.getDestination(),maxNrHoops,newPrefix);
-                }
-            }
-        }
-
-    }
-
-    /**
-     * Method that returns all paths with weights, for same source and target nodes, with latency lower
-     * than maxLatency excluding direct connection to itself.
-     *
-     * @param start
-     * @param target
-     * @param exactNrHoops
-     * @param prefix
-     */
-    private void getPathsWithExactNumberOfSteps(Node start, Node target, int exactNrHoops, String prefix) {
-
-        LinkedList<Edge> edges = start.getEdges();
-
-        for (Edge e : edges) {
-            String newPrefix = prefix + e.getDestination().getName();
-
-            if(!e.getDestination().getName().equalsIgnoreCase(endNode.getName()) && newPrefix.length()<=exactNrHoops) {
-                getPathsWithExactNumberOfSteps(e.getDestination(), target, exactNrHoops, newPrefix);
-            }
-            else if(e.getDestination().getName().equalsIgnoreCase(endNode.getName())){
-                if(newPrefix.length()-1==exactNrHoops)  {
-                    temp = getPathWeight(newPrefix);
-                    paths.put(newPrefix, temp);
-                }
-                getPathsWithExactNumberOfSteps(e.getDestination(), target, exactNrHoops, newPrefix);
-            }
-
-        }
-    }
-
-    /**
-     * Method that returns all paths with weights, for same source and target nodes, with latency lower
-     * than maxLatency excluding direct connection to itself.
-     *
-     * @param target
-     * @param maxLatency
-     * @param prefix
-     */
-    private void getPathsForSameNodeAndMaxLatency(Node target, int maxLatency, String prefix) {
-        LinkedList<Edge> edges = target.getEdges();
-        for (Edge e : edges) {
-            String newPrefix = prefix + e.getDestination().getName();
-            temp = getPathWeight(newPrefix);
-            if(temp<maxLatency) {
-                if (e.getDestination().getName().equalsIgnoreCase(endNode.getName())) {
-                    paths.put(newPrefix, temp);
-                }
-                getPathsForSameNodeAndMaxLatency(e.getDestination(),maxLatency,newPrefix);
-            }
-        }
-    }
-
-    /**
-     * Method that returns shorthest path between two different nodes with weight
-     * @param start
-     * @param end
-     * @return
-     */
-    private HashMap<String, Integer> getShortestPathBetweenDifferentNodes(Node start, Node end) {
-        HashMap<Node, Node> parentChildMap = new HashMap<>();
-        parentChildMap.put(start, null);
-
-        // Shortest path between nodes
-        HashMap<Node, Integer> shortestPathMap = new HashMap<>();
-
-        for (Node node : getNodes()) {
-            if (node == start)
-                shortestPathMap.put(start, 0);
-            else shortestPathMap.put(node, Integer.MAX_VALUE);
-        }
-
-        for (Edge edge : start.getEdges()) {
-            shortestPathMap.put(edge.getDestination(), edge.getWeight());
-            parentChildMap.put(edge.getDestination(), start);
-        }
-
-        while (true) {
-            Node currentNode = closestUnvisitedNeighbour(shortestPathMap);
-
-            if (currentNode == null) {
-                return null;
-            }
-
-            // Save path to nearest unvisited node
-            if (currentNode == end) {
-                Node child = end;
-                String path = end.getName();
-                while (true) {
-                    Node parent = parentChildMap.get(child);
-                    if (parent == null) {
-                        break;
-                    }
-
-                    // Create path using previous(parent) and current(child) node
-                    path = parent.getName() + "" + path;
-                    child = parent;
-                }
-                HashMap<String,Integer> hm= new HashMap<>();
-                hm.put(path, shortestPathMap.get(end));
-                return hm;
-            }
-            currentNode.visit();
-
-            // Go trough edges and find nearest
-            for (Edge edge : currentNode.getEdges()) {
-                if (edge.getDestination().isVisited())
-                    continue;
-
-                if (shortestPathMap.get(currentNode) + edge.getWeight() < shortestPathMap.get(edge.getDestination())) {
-                    shortestPathMap.put(edge.getDestination(), shortestPathMap.get(currentNode) + edge.getWeight());
-                    parentChildMap.put(edge.getDestination(), currentNode);
-                }
-            }
-        }
-    }
-
-    /**
-     * Method that returns nearest edge node
-     * @param shortestPathMap
-     * @return
-     */
-    private Node closestUnvisitedNeighbour(HashMap <Node, Integer > shortestPathMap){
-        int shortestDistance = Integer.MAX_VALUE;
-        Node closestReachableNode = null;
-        for (Node node : getNodes()) {
-            if (node.isVisited())
-                continue;
-
-            int currentDistance = shortestPathMap.get(node);
-            if (currentDistance == Integer.MAX_VALUE)
-                continue;
-
-            if (currentDistance < shortestDistance) {
-                shortestDistance = currentDistance;
-                closestReachableNode = node;
-            }
-        }
-        return closestReachableNode;
-    }
-
-    /**
-     * Method that returns shortest path for same node. For simplicity sake previously
-     * written methods are used
-     * @param node
-     * @param latency
-     * @return
-     */
-    private HashMap<String, Integer> getShortestPathBetweenSameNodes(Node node, int latency) {
-        HashMap<String,Integer> allPaths = getAllPaths(node,Selection.MAX_LATENCY,latency);
-        if(allPaths.isEmpty() && isEdge(node)) {
-            allPaths = getShortestPathBetweenSameNodes(node,latency * 2);
-        }
-
-        String key = Collections.min(allPaths.entrySet(), Map.Entry.comparingByValue()).getKey();
-        int value = Collections.min(allPaths.entrySet(), Map.Entry.comparingByValue()).getValue();
-        allPaths.clear();
-        allPaths.put(key,value);
-
-        return allPaths;
+    public int getNumberOfTracesBySelection(Node a, Selection selection, int i){
+        return getNumberOfTracesBySelection(a, a, selection, i);
     }
 
     /**
@@ -406,11 +168,7 @@ public class GraphWeighted {
      * @return
      */
     public int getShortestPathLatency(Node node) {
-        HashMap<String, Integer> pathWeight = getShortestPath(node);
-        if(pathWeight!=null && pathWeight.size()==1) {
-            return pathWeight.entrySet().iterator().next().getValue();
-        }
-        return 0;
+        return getShortestPathLatency(node, node);
     }
 
     /**
@@ -420,57 +178,65 @@ public class GraphWeighted {
      * @return
      */
     public int getShortestPathLatency(Node a, Node b) {
-        HashMap<String,Integer> pathWeight = getShortestPath(a,b);
-
-        if(pathWeight!=null && pathWeight.size()==1) {
-            return pathWeight.entrySet().iterator().next().getValue();
+        int start = indexOf(a);
+        if (start < 0) {
+            return 0;
         }
-        return 0;
+        return orZero(traversal().shortestLatency(traversal().shortestLatencies(start), start, indexOf(b)));
     }
 
     /**
-     * Mathod that returns shortest path for same nodes
-     * @param node
+     * Method that returns shortest path latency between two nodes (or back to same node) that satisfies
+     * constraints. Returns 0 if there is no such trace.
+     * @param start
+     * @param end
+     * @param constraints
      * @return
      */
-    private HashMap<String, Integer> getShortestPath(Node node){
-        if(isEdge(node)) {
-            return getShortestPathBetweenSameNodes(node, 30);
+    public int getShortestPathLatency(Node start, Node end, PathConstraints constraints) {
+        BitSet excluded = new BitSet(getStorage().nodeCount());
+        for (Node node : constraints.getExcluded()) {
+            int i = indexOf(node);
+            if (i >= 0) {
+                excluded.set(i);
+            }
+        }
+        List<Node> waypoints = constraints.getWaypoints();
+        int[] waypointIndices = new int[waypoints.size()];
+        for (int w = 0; w < waypoints.size(); w++) {
+            waypointIndices[w] = indexOf(waypoints.get(w));
         }
-        logger.warn("NO SUCH TRACE: " + node.getName() + "-" + node.getName());
-        return null;
+        return orZero(traversal().constrainedShortest(indexOf(start), indexOf(end), constraints.getMaxHops(), excluded, waypointIndices));
     }
 
     /**
-     * Method that returns shortest path beteween two nodes
-     * @param start
-     * @param end
+     * Method that returns 0 for missing trace, graph API reports missing traces as 0 latency
+     * @param latency
      * @return
      */
-    private HashMap<String, Integer> getShortestPath(Node start, Node end){
-        if(start.equals(end)) {
-            return getShortestPath(start);
-        }
-        return getShortestPathBetweenDifferentNodes(start,end);
+    private static int orZero(int latency) {
+        return latency == GraphTraversal.UNREACHABLE ? 0 : latency;
     }
 
     /**
-     * Method that checks if there is at least one relation
-     * from any other node to input node
-     *
-     * @param node
+     * Method that returns shortest path latencies from start node to every reachable node
+     * using single Dijkstra run, so one call can serve many targets of same source.
+     * Entry for start node holds latency of shortest trace back to itself (excluding
+     * direct connection to itself). Unreachable nodes are not present in the map.
+     * @param start
      * @return
      */
-    private boolean isEdge(Node node) {
-        for (Node n: nodes){
-            if(!node.equals(n)) {
-                for(Edge e:n.getEdges()){
-                    if(e.getDestination().equals(node)) {
-                        return true;
-                    }
-                }
+    public Map<Node, Integer> getShortestPathLatencies(Node start) {
+        Map<Node, Integer> distances = new HashMap<>();
+        if (indexOf(start) < 0) {
+            return distances;
+        }
+        int[] latencies = traversal().shortestLatencies(indexOf(start));
+        for (int node = 0; node < latencies.length; node++) {
+            if (latencies[node] != GraphTraversal.UNREACHABLE) {
+                distances.put(indexed.get(node), latencies[node]);
             }
         }
-        return false;
+        return distances;
     }
 }
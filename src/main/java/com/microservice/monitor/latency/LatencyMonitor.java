@@ -1,78 +1,198 @@
 package com.microservice.monitor.latency;
 
 
+import com.microservice.monitor.latency.metrics.QueryMetrics;
+import com.microservice.monitor.latency.query.Query;
+import com.microservice.monitor.latency.query.QueryEngine;
+import com.microservice.monitor.latency.query.QueryExecutor;
+import com.microservice.monitor.latency.query.QueryReader;
+import com.microservice.monitor.latency.result.ResultFormat;
+import com.microservice.monitor.latency.result.ResultSink;
+import com.microservice.monitor.latency.result.WriterResultSink;
+import com.microservice.monitor.latency.shard.EdgeCutPartitioner;
+import com.microservice.monitor.latency.shard.GraphPartitioner;
+import com.microservice.monitor.latency.shard.ServiceGroupPartitioner;
+import com.microservice.monitor.latency.shard.ShardCoordinator;
+import com.microservice.monitor.latency.storage.GraphStorage;
+import com.microservice.monitor.latency.storage.OffHeapGraphStorage;
 import com.microservice.monitor.latency.util.Node;
-import org.apache.log4j.Logger;
+import com.microservice.monitor.latency.util.RateLimitedLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.*;
 
 public class LatencyMonitor {
-    final static Logger logger = Logger.getLogger(LatencyMonitor.class);
+    final static Logger logger = LoggerFactory.getLogger(LatencyMonitor.class);
 
-    public static void main(String args[]) throws IOException {
-        GraphWeighted graphWeighted = new GraphWeighted();
-        Map<String, Node> nodes = loadData(args, graphWeighted);
-        printResults(graphWeighted, nodes);
-    }
-
-    /**
-     * Method that prints results as required in task,
-     * results will be printed in logs as well as result file
-     * @param graphWeighted
-     * @param nodes
-     */
-    private static void printResults(GraphWeighted graphWeighted, Map<String, Node> nodes) throws IOException {
-        // The average latency for A-B-C.
-        int ABC = graphWeighted.getPathWeight("ABC");
+    private static final String FORMAT_OPTION = "--format=";
+    private static final String OUTPUT_OPTION = "--output=";
+    private static final String SHARDS_OPTION = "--shards=";
+    private static final String GROUPS_OPTION = "--groups=";
+    private static final String STORAGE_OPTION = "--storage=";
+    private static final String MAPPED_STORAGE = "mmap:";
+    private static final String DEFAULT_OUTPUT = "./results/results.txt";
 
-        // The average latency for A-D.
-        int AD = graphWeighted.getPathWeight("AD");
-
-        // The average latency for A-D-C.
-        int ADC = graphWeighted.getPathWeight("ADC");
+    public static void main(String args[]) throws IOException {
+        List<String> files = new ArrayList<>();
+        ResultFormat format = ResultFormat.TEXT;
+        String output = DEFAULT_OUTPUT;
+        int shards = 0;
+        String groups = null;
+        String storage = "heap";
+        for (String arg : args) {
+            if(arg.startsWith(FORMAT_OPTION)) {
+                format = ResultFormat.valueOf(arg.substring(FORMAT_OPTION.length()).toUpperCase(Locale.ROOT));
+            } else if(arg.startsWith(OUTPUT_OPTION)) {
+                output = arg.substring(OUTPUT_OPTION.length());
+            } else if(arg.startsWith(SHARDS_OPTION)) {
+                shards = Integer.parseInt(arg.substring(SHARDS_OPTION.length()));
+            } else if(arg.startsWith(GROUPS_OPTION)) {
+                groups = arg.substring(GROUPS_OPTION.length());
+            } else if(arg.startsWith(STORAGE_OPTION)) {
+                storage = arg.substring(STORAGE_OPTION.length());
+            } else {
+                files.add(arg);
+            }
+        }
+        String[] fileArgs = files.toArray(new String[0]);
+        if(shards > 0 && !"heap".equals(storage)) {
+            throw new IllegalArgumentException("--storage=" + storage + " can not be combined with --shards, shards always keep their part of the graph on heap !");
+        }
 
-        // The average latency for A-E-B-C-D.
-        int AEBCD = graphWeighted.getPathWeight("AEBCD");
+        if(QueryMetrics.ENABLED) {
+            QueryMetrics.registerMBeans();
+            QueryMetrics.startPeriodicDump();
+        }
 
-        // The average latency for  A-E-D.
-        int AED = graphWeighted.getPathWeight("AED");
+        try {
+            if(shards > 0) {
+                List<Query> queries = loadQueries(fileArgs);
+                ShardCoordinator.checkSupported(queries);
+                try (ShardCoordinator coordinator = ShardCoordinator.launch(fileArgs[0], partitioner(groups), shards)) {
+                    printResults(coordinator, queries, openSink(output, format));
+                }
+            } else if(!"heap".equals(storage)) {
+                List<Query> queries = loadQueries(fileArgs);
+                try (GraphStorage graphStorage = loadStorage(fileArgs[0], storage)) {
+                    printResults(new QueryExecutor(graphStorage), queries, openSink(output, format));
+                }
+            } else {
+                GraphWeighted graphWeighted = new GraphWeighted();
+                loadData(fileArgs, graphWeighted);
+                List<Query> queries = loadQueries(fileArgs);
+                printResults(new QueryExecutor(graphWeighted.getStorage()), queries, openSink(output, format));
+            }
+        } finally {
+            RateLimitedLogger.flushAll();
+        }
 
-        // The number of traces between C-C with maximum 3 hoops
-        int traceCCByMaxHoops = graphWeighted.getNumberOfTracesBySelection(nodes.get(NodeEnum.C.name()),Selection.MAX_HOOPS,3);
+        if(QueryMetrics.ENABLED) {
+            QueryMetrics.dump();
+        }
+    }
 
-        // The number of traces between A-C with exact 3 hoops
-        int traceAC = graphWeighted
-                .getNumberOfTracesBySelection(nodes.get(NodeEnum.A.name()), nodes.get(NodeEnum.C.name()),Selection.EXACT_HOOPS,4);
+    /**
+     * Method that opens results sink, "-" as output writes results to standard output
+     * @param output
+     * @param format
+     * @return
+     */
+    private static ResultSink openSink(String output, ResultFormat format) throws IOException {
+        if("-".equals(output)) {
+            return WriterResultSink.toStdout(format);
+        }
+        logger.info("Write results to file {} in {} format.....", output, format);
+        return WriterResultSink.toFile(Paths.get(output), format);
+    }
 
-        // The latency of shortest trace between A-C
-        int latencyShortestAC = graphWeighted.getShortestPathLatency(nodes.get(NodeEnum.A.name()), nodes.get(NodeEnum.C.name()));
+    /**
+     * Method that loads graph outside of heap, into direct buffers ("offheap")
+     * or into memory mapped file ("mmap:path")
+     * @param inputFile
+     * @param storage
+     * @return
+     */
+    private static GraphStorage loadStorage(String inputFile, String storage) throws IOException {
+        GraphStorage graphStorage;
+        if(storage.startsWith(MAPPED_STORAGE)) {
+            graphStorage = OffHeapGraphStorage.load(inputFile, Paths.get(storage.substring(MAPPED_STORAGE.length())));
+        } else if("offheap".equals(storage)) {
+            graphStorage = OffHeapGraphStorage.load(inputFile);
+        } else {
+            throw new IllegalArgumentException("Unknown storage: " + storage);
+        }
+        logger.info("Loaded {} nodes and {} edges into {} storage", graphStorage.nodeCount(), graphStorage.edgeCount(), storage);
+        return graphStorage;
+    }
 
-        // The latency of shortest trace between B-B
-        int latencyShortestBB = graphWeighted.getShortestPathLatency(nodes.get(NodeEnum.B.name()));
+    /**
+     * Method that returns partitioner for sharded graph, services are grouped by groups file
+     * (one "service group" pair per line) if given, otherwise edge cut is minimised
+     * @param groups
+     * @return
+     */
+    private static GraphPartitioner partitioner(String groups) throws IOException {
+        if(groups == null) {
+            return new EdgeCutPartitioner();
+        }
+        logger.info("Partition services by groups file: {}", groups);
+        Map<String, String> serviceGroups = new HashMap<>();
+        for (String line : Files.readAllLines(Paths.get(groups), StandardCharsets.UTF_8)) {
+            String[] tokens = line.trim().split("\\s+");
+            if(tokens.length == 2) {
+                serviceGroups.put(tokens[0].toUpperCase(Locale.ROOT), tokens[1]);
+            }
+        }
+        return new ServiceGroupPartitioner(serviceGroups);
+    }
 
-        // The number of traces between C-C with maximum latency less than 30
-        int traceCCByLatency = graphWeighted.getNumberOfTracesBySelection(nodes.get(NodeEnum.C.name()), Selection.MAX_LATENCY, 30);
+    /**
+     * Method that executes queries and streams results to sink in same order as queries are given
+     * @param engine
+     * @param queries
+     * @param sink
+     */
+    private static void printResults(QueryEngine engine, List<Query> queries, ResultSink sink) throws IOException {
+        int[] counter = {0};
+        try (sink) {
+            engine.executeAll(queries, (query, result) -> {
+                try {
+                    sink.write(++counter[0], query, result);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
 
-        logger.info("Write results to file.....");
-        String file = "./results/results.txt";
-        if(new File(file).delete()) {
-            logger.info("Delete previous results file");
+    /**
+     * Method that reads query file given as second parameter, or bundled
+     * queries.txt with default queries when query file is not provided
+     * @param args
+     * @return
+     */
+    private static List<Query> loadQueries(String[] args) throws IOException {
+        BufferedReader queryReader;
+        if(args.length > 1) {
+            logger.info("Query file provided: {}", args[1]);
+            queryReader = new BufferedReader(new FileReader(args[1]));
+        } else {
+            logger.info("Query file not provided, use default queries.");
+            queryReader = new BufferedReader(new InputStreamReader(
+                    LatencyMonitor.class.getResourceAsStream("/queries.txt"), StandardCharsets.UTF_8));
+        }
+        try {
+            return QueryReader.read(queryReader);
+        } finally {
+            queryReader.close();
         }
-        FileWriter fileWriter = new FileWriter(file);
-        PrintWriter printWriter = new PrintWriter(fileWriter);
-        printWriter.println("1. " + (ABC != 0.0 ? ABC : "NO SUCH TRACE"));
-        printWriter.println("2. " + (AD != 0.0 ? AD : "NO SUCH TRACE"));
-        printWriter.println("3. " + (ADC != 0.0 ? ADC : "NO SUCH TRACE"));
-        printWriter.println("4. " + (AEBCD != 0.0 ? AEBCD : "NO SUCH TRACE"));
-        printWriter.println("5. " + (AED != 0.0 ? AED : "NO SUCH TRACE"));
-        printWriter.println("6. " + traceCCByMaxHoops);
-        printWriter.println("7. " + traceAC);
-        printWriter.println("8. " + latencyShortestAC);
-        printWriter.println("9. " + latencyShortestBB);
-        printWriter.println("10. " + traceCCByLatency);
-
-        printWriter.close();
     }
 
     /**
@@ -85,10 +205,10 @@ public class LatencyMonitor {
         Map<String, Node> nodes = new HashMap<>();
         try {
             String inputFile = args[0];
-            if(args.length != 1 ) {
-                throw new IllegalArgumentException("Exactly one parameter required - file name !");
+            if(args.length > 2) {
+                throw new IllegalArgumentException("Input file name and optional query file name required !");
             }
-            logger.info("File name provided: " + inputFile);
+            logger.info("File name provided: {}", inputFile);
             logger.info("Try to read the file.");
 
             BufferedReader csvReader = new BufferedReader(new FileReader(inputFile));
@@ -97,8 +217,9 @@ public class LatencyMonitor {
                 String[] data = row.split(",");
                 for (String s: data) {
                     validate(s);
-                    String source = s.substring(0,1);
-                    String edge = s.substring(1,2);
+                    // Service names are case insensitive, same as in queries
+                    String source = s.substring(0,1).toUpperCase(Locale.ROOT);
+                    String edge = s.substring(1,2).toUpperCase(Locale.ROOT);
                     int weight = Integer.parseInt(s.substring(2));
                     if(nodes.get(source) == null) {
                         nodes.put(source, new Node(source));
@@ -1,5 +0,0 @@
-package com.microservice.monitor.latency;
-
-public enum NodeEnum {
-    A,B,C,D,E,F
-}
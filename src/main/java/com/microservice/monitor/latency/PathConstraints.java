@@ -0,0 +1,60 @@
+package com.microservice.monitor.latency;
+
+import com.microservice.monitor.latency.util.Node;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Constraints of shortest trace query: maximum number of hops, services the trace must avoid
+ * and services (waypoints) the trace must pass through in any order.
+ */
+public class PathConstraints {
+
+    /**
+     * Waypoints are tracked as bit mask on every search label
+     */
+    public static final int MAX_WAYPOINTS = 16;
+
+    private int maxHops = Integer.MAX_VALUE;
+    private final Set<Node> excluded = new HashSet<>();
+    private final List<Node> waypoints = new ArrayList<>();
+
+    public PathConstraints maxHops(int maxHops) {
+        if (maxHops < 1) {
+            throw new IllegalArgumentException("Maximum number of hops must be positive: " + maxHops);
+        }
+        this.maxHops = maxHops;
+        return this;
+    }
+
+    public PathConstraints exclude(Node node) {
+        excluded.add(node);
+        return this;
+    }
+
+    public PathConstraints via(Node node) {
+        if (!waypoints.contains(node)) {
+            if (waypoints.size() == MAX_WAYPOINTS) {
+                throw new IllegalArgumentException("At most " + MAX_WAYPOINTS + " waypoints are supported");
+            }
+            waypoints.add(node);
+        }
+        return this;
+    }
+
+    public int getMaxHops() {
+        return maxHops;
+    }
+
+    public Set<Node> getExcluded() {
+        return Collections.unmodifiableSet(excluded);
+    }
+
+    public List<Node> getWaypoints() {
+        return Collections.unmodifiableList(waypoints);
+    }
+}
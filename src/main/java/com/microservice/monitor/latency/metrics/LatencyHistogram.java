@@ -0,0 +1,87 @@
+package com.microservice.monitor.latency.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Allocation free latency histogram with power of two buckets in nanoseconds.
+ * Bucket i holds durations in range [2^(i-1), 2^i), so percentiles are
+ * reported as upper bound of bucket they fall into.
+ */
+public class LatencyHistogram implements QueryLatencyMXBean {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Method that records single duration
+     * @param nanos
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        buckets[Math.min(BUCKETS - Long.numberOfLeadingZeros(value), BUCKETS - 1)].increment();
+        count.increment();
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getMeanMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : TimeUnit.NANOSECONDS.toMicros(total.sum() / n);
+    }
+
+    @Override
+    public long getP50Micros() {
+        return percentileMicros(0.50);
+    }
+
+    @Override
+    public long getP99Micros() {
+        return percentileMicros(0.99);
+    }
+
+    @Override
+    public long getMaxMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(max.get());
+    }
+
+    private long percentileMicros(double percentile) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i].sum();
+            if (seen >= rank) {
+                long upperBound = i == 0 ? 0 : (i >= 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                return TimeUnit.NANOSECONDS.toMicros(Math.min(upperBound, max.get()));
+            }
+        }
+        return getMaxMicros();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + getCount() + " meanUs=" + getMeanMicros() + " p50Us=" + getP50Micros()
+                + " p99Us=" + getP99Micros() + " maxUs=" + getMaxMicros();
+    }
+}
@@ -0,0 +1,17 @@
+package com.microservice.monitor.latency.metrics;
+
+/**
+ * Latency of one query type exposed over JMX
+ */
+public interface QueryLatencyMXBean {
+
+    long getCount();
+
+    long getMeanMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getMaxMicros();
+}
@@ -0,0 +1,130 @@
+package com.microservice.monitor.latency.metrics;
+
+import com.microservice.monitor.latency.query.QueryType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot path instrumentation of query execution. Metrics are switched on with
+ * -Dlatency.metrics=true, every call site is guarded with {@link #ENABLED} which is
+ * compile time constant for JIT, so disabled instrumentation costs nothing.
+ * Periodic dump interval in seconds is set with -Dlatency.metrics.dumpInterval (default 60).
+ */
+public final class QueryMetrics {
+
+    final static Logger logger = LoggerFactory.getLogger(QueryMetrics.class);
+
+    public static final boolean ENABLED = Boolean.getBoolean("latency.metrics");
+
+    private static final String DOMAIN = "com.microservice.monitor.latency";
+
+    private static final TraversalCounters TRAVERSAL = new TraversalCounters();
+    private static final Map<QueryType, LatencyHistogram> LATENCIES = new EnumMap<>(QueryType.class);
+
+    static {
+        for (QueryType type : QueryType.values()) {
+            LATENCIES.put(type, new LatencyHistogram());
+        }
+    }
+
+    private QueryMetrics() {
+    }
+
+    public static void nodeExpanded() {
+        TRAVERSAL.nodesExpanded.increment();
+    }
+
+    public static void edgeRelaxed() {
+        TRAVERSAL.edgesRelaxed.increment();
+    }
+
+    public static void pathEnumerated() {
+        TRAVERSAL.pathsEnumerated.increment();
+    }
+
+    public static void cacheHit() {
+        TRAVERSAL.cacheHits.increment();
+    }
+
+    public static void cacheMiss() {
+        TRAVERSAL.cacheMisses.increment();
+    }
+
+    public static void sourceCacheHit() {
+        TRAVERSAL.sourceCacheHits.increment();
+    }
+
+    public static void sourceCacheMiss() {
+        TRAVERSAL.sourceCacheMisses.increment();
+    }
+
+    public static void recordQuery(QueryType type, long nanos) {
+        LATENCIES.get(type).record(nanos);
+    }
+
+    public static TraversalMXBean getTraversal() {
+        return TRAVERSAL;
+    }
+
+    public static QueryLatencyMXBean getLatency(QueryType type) {
+        return LATENCIES.get(type);
+    }
+
+    /**
+     * Method that registers traversal counters and latency of each query type in platform MBean server
+     */
+    public static void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            register(server, TRAVERSAL, new ObjectName(DOMAIN + ":type=Traversal"));
+            for (Map.Entry<QueryType, LatencyHistogram> entry : LATENCIES.entrySet()) {
+                register(server, entry.getValue(), new ObjectName(DOMAIN + ":type=QueryLatency,name="
+                        + entry.getKey().name().toLowerCase(Locale.ROOT)));
+            }
+        } catch (JMException e) {
+            logger.warn("Unable to register metrics MBeans", e);
+        }
+    }
+
+    private static void register(MBeanServer server, Object bean, ObjectName name) throws JMException {
+        if (!server.isRegistered(name)) {
+            server.registerMBean(bean, name);
+        }
+    }
+
+    /**
+     * Method that starts daemon thread dumping metrics to log every dumpInterval seconds
+     * @return
+     */
+    public static ScheduledExecutorService startPeriodicDump() {
+        long interval = Long.getLong("latency.metrics.dumpInterval", 60);
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(QueryMetrics::dump, interval, interval, TimeUnit.SECONDS);
+        return executor;
+    }
+
+    /**
+     * Method that writes current metrics to log
+     */
+    public static void dump() {
+        logger.info("Traversal: {}", TRAVERSAL);
+        for (Map.Entry<QueryType, LatencyHistogram> entry : LATENCIES.entrySet()) {
+            logger.info("Query {}: {}", entry.getKey().name().toLowerCase(Locale.ROOT), entry.getValue());
+        }
+    }
+}
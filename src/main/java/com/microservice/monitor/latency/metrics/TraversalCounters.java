@@ -0,0 +1,60 @@
+package com.microservice.monitor.latency.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Striped counters of graph traversal work, safe to increment from many threads
+ */
+public class TraversalCounters implements TraversalMXBean {
+
+    final LongAdder nodesExpanded = new LongAdder();
+    final LongAdder edgesRelaxed = new LongAdder();
+    final LongAdder pathsEnumerated = new LongAdder();
+    final LongAdder cacheHits = new LongAdder();
+    final LongAdder cacheMisses = new LongAdder();
+    final LongAdder sourceCacheHits = new LongAdder();
+    final LongAdder sourceCacheMisses = new LongAdder();
+
+    @Override
+    public long getNodesExpanded() {
+        return nodesExpanded.sum();
+    }
+
+    @Override
+    public long getEdgesRelaxed() {
+        return edgesRelaxed.sum();
+    }
+
+    @Override
+    public long getPathsEnumerated() {
+        return pathsEnumerated.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getCacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    @Override
+    public long getSourceCacheHits() {
+        return sourceCacheHits.sum();
+    }
+
+    @Override
+    public long getSourceCacheMisses() {
+        return sourceCacheMisses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "nodesExpanded=" + getNodesExpanded() + " edgesRelaxed=" + getEdgesRelaxed()
+                + " pathsEnumerated=" + getPathsEnumerated() + " cacheHits=" + getCacheHits()
+                + " cacheMisses=" + getCacheMisses() + " sourceCacheHits=" + getSourceCacheHits()
+                + " sourceCacheMisses=" + getSourceCacheMisses();
+    }
+}
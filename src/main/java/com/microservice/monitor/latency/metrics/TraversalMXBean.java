@@ -0,0 +1,21 @@
+package com.microservice.monitor.latency.metrics;
+
+/**
+ * Graph traversal counters exposed over JMX
+ */
+public interface TraversalMXBean {
+
+    long getNodesExpanded();
+
+    long getEdgesRelaxed();
+
+    long getPathsEnumerated();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    long getSourceCacheHits();
+
+    long getSourceCacheMisses();
+}
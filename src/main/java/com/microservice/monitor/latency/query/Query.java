@@ -0,0 +1,256 @@
+package com.microservice.monitor.latency.query;
+
+import com.microservice.monitor.latency.Selection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Single line of query file. Supported formats are:
+ * <pre>
+ * weight A-E-B-C-D
+ * count C C max_hops 3
+ * count A C exact_hops 4
+ * count C C max_latency 30
+ * shortest A C
+ * shortest A C max_hops 4 avoid D via E
+ * </pre>
+ * Shortest query constraints may be given in any order, avoid and via accept comma separated
+ * list of services (i.e. avoid D,F) and may be repeated.
+ * Services are named by single letter same as in input file and are case insensitive, both query
+ * and input file names are upper cased.
+ * Empty lines and lines starting with # are ignored by {@link QueryReader}.
+ */
+public class Query {
+
+    private final QueryType type;
+    private final List<String> path;
+    private final Selection selection;
+    private final int value;
+    private final int maxHops;
+    private final List<String> avoid;
+    private final List<String> via;
+
+    private Query(QueryType type, List<String> path, Selection selection, int value) {
+        this(type, path, selection, value, 0, Collections.emptyList(), Collections.emptyList());
+    }
+
+    private Query(QueryType type, List<String> path, Selection selection, int value,
+                  int maxHops, List<String> avoid, List<String> via) {
+        this.type = type;
+        this.path = path;
+        this.selection = selection;
+        this.value = value;
+        this.maxHops = maxHops;
+        this.avoid = avoid;
+        this.via = via;
+    }
+
+    /**
+     * Method that parses one line of query file
+     * @param line
+     * @return
+     */
+    public static Query parse(String line) {
+        String[] tokens = line.trim().split("\\s+");
+        QueryType type;
+        try {
+            type = QueryType.valueOf(tokens[0].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown query type: " + line);
+        }
+
+        switch (type) {
+            case WEIGHT:
+                expectTokens(line, tokens, 2);
+                List<String> path = services(line, tokens[1], "-");
+                if (path.size() < 2) {
+                    throw new IllegalArgumentException("Trace requires at least two services: " + line);
+                }
+                return new Query(type, Collections.unmodifiableList(path), null, 0);
+            case COUNT:
+                expectTokens(line, tokens, 5);
+                Selection selection;
+                try {
+                    selection = Selection.valueOf(tokens[3].toUpperCase(Locale.ROOT).replace("HOPS", "HOOPS"));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Unknown selection: " + line);
+                }
+                return new Query(type, nodes(line, tokens[1], tokens[2]), selection, parseValue(line, tokens[4]));
+            default:
+                if (tokens.length < 3 || tokens.length % 2 == 0) {
+                    throw new IllegalArgumentException("Malformed query: " + line);
+                }
+                return parseShortest(line, tokens);
+        }
+    }
+
+    private static Query parseShortest(String line, String[] tokens) {
+        int maxHops = 0;
+        Set<String> avoid = new TreeSet<>();
+        Set<String> via = new TreeSet<>();
+        for (int i = 3; i < tokens.length; i += 2) {
+            switch (tokens[i].toLowerCase(Locale.ROOT)) {
+                case "max_hops":
+                case "max_hoops":
+                    maxHops = parseValue(line, tokens[i + 1]);
+                    if (maxHops < 1) {
+                        throw new IllegalArgumentException("Maximum number of hops must be positive: " + line);
+                    }
+                    break;
+                case "avoid":
+                    avoid.addAll(services(line, tokens[i + 1], ","));
+                    break;
+                case "via":
+                    via.addAll(services(line, tokens[i + 1], ","));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown constraint: " + line);
+            }
+        }
+        return new Query(QueryType.SHORTEST, nodes(line, tokens[1], tokens[2]), null, 0, maxHops,
+                Collections.unmodifiableList(new ArrayList<>(avoid)), Collections.unmodifiableList(new ArrayList<>(via)));
+    }
+
+    private static List<String> nodes(String line, String source, String target) {
+        return Collections.unmodifiableList(Arrays.asList(service(line, source), service(line, target)));
+    }
+
+    private static List<String> services(String line, String names, String separator) {
+        List<String> services = new ArrayList<>();
+        for (String name : names.split(separator, -1)) {
+            services.add(service(line, name));
+        }
+        return services;
+    }
+
+    /**
+     * Method that returns upper cased service name, names that can not exist in input file are rejected
+     * @param line
+     * @param name
+     * @return
+     */
+    private static String service(String line, String name) {
+        if (name.length() != 1 || !Character.isLetter(name.charAt(0))) {
+            throw new IllegalArgumentException("Service name must be single letter: " + name + " in " + line);
+        }
+        return name.toUpperCase(Locale.ROOT);
+    }
+
+    private static void expectTokens(String line, String[] tokens, int expected) {
+        if (tokens.length != expected) {
+            throw new IllegalArgumentException("Malformed query: " + line);
+        }
+    }
+
+    private static int parseValue(String line, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed query value: " + line);
+        }
+    }
+
+    public QueryType getType() {
+        return type;
+    }
+
+    /**
+     * Services on the trace for weight queries, or source and target for other queries
+     * @return
+     */
+    public List<String> getPath() {
+        return path;
+    }
+
+    public String getSource() {
+        return path.get(0);
+    }
+
+    public String getTarget() {
+        return path.get(path.size() - 1);
+    }
+
+    public Selection getSelection() {
+        return selection;
+    }
+
+    public int getValue() {
+        return value;
+    }
+
+    /**
+     * Maximum number of hops of shortest trace, 0 if not limited
+     * @return
+     */
+    public int getMaxHops() {
+        return maxHops;
+    }
+
+    /**
+     * Services shortest trace must not pass through
+     * @return
+     */
+    public List<String> getAvoid() {
+        return avoid;
+    }
+
+    /**
+     * Services shortest trace must pass through
+     * @return
+     */
+    public List<String> getVia() {
+        return via;
+    }
+
+    public boolean hasConstraints() {
+        return maxHops > 0 || !avoid.isEmpty() || !via.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Query)) {
+            return false;
+        }
+        Query query = (Query) o;
+        return value == query.value && maxHops == query.maxHops && type == query.type && path.equals(query.path)
+                && selection == query.selection && avoid.equals(query.avoid) && via.equals(query.via);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, path, selection, value, maxHops, avoid, via);
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case WEIGHT:
+                return "weight " + String.join("-", path);
+            case COUNT:
+                return "count " + getSource() + " " + getTarget() + " "
+                        + selection.name().replace("HOOPS", "HOPS").toLowerCase(Locale.ROOT) + " " + value;
+            default:
+                StringBuilder query = new StringBuilder("shortest " + getSource() + " " + getTarget());
+                if (maxHops > 0) {
+                    query.append(" max_hops ").append(maxHops);
+                }
+                if (!avoid.isEmpty()) {
+                    query.append(" avoid ").append(String.join(",", avoid));
+                }
+                if (!via.isEmpty()) {
+                    query.append(" via ").append(String.join(",", via));
+                }
+                return query.toString();
+        }
+    }
+}
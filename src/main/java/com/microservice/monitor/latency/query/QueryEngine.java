@@ -0,0 +1,36 @@
+package com.microservice.monitor.latency.query;
+
+import com.microservice.monitor.latency.storage.GraphTraversal;
+
+import java.util.List;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Anything that can answer queries, either in process graph or sharded graph
+ */
+public interface QueryEngine {
+
+    /**
+     * Result of weight and shortest queries when there is no such trace, count queries return 0
+     */
+    int NO_SUCH_TRACE = GraphTraversal.UNREACHABLE;
+
+    /**
+     * Method that returns result of single query, NO_SUCH_TRACE for weight
+     * and shortest queries when there is no such trace.
+     * @param query
+     * @return
+     */
+    int execute(Query query);
+
+    /**
+     * Method that executes all queries and hands every result to consumer in input order
+     * @param queries
+     * @param consumer
+     */
+    default void executeAll(List<Query> queries, ObjIntConsumer<Query> consumer) {
+        for (Query query : queries) {
+            consumer.accept(query, execute(query));
+        }
+    }
+}
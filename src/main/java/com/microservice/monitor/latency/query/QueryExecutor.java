@@ -0,0 +1,169 @@
+package com.microservice.monitor.latency.query;
+
+import com.microservice.monitor.latency.metrics.QueryMetrics;
+import com.microservice.monitor.latency.storage.GraphStorage;
+import com.microservice.monitor.latency.storage.GraphTraversal;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Executes parsed queries against the graph storage, heap or off-heap, with {@link GraphTraversal}.
+ * Queries are executed in groups of same type and source node: identical queries of the group are
+ * executed only once and shortest path queries of the group share single Dijkstra run, so every
+ * source is traversed once no matter how many times it is queried or in which order.
+ */
+public class QueryExecutor implements QueryEngine {
+
+    private final GraphStorage storage;
+    private final GraphTraversal traversal;
+
+    public QueryExecutor(GraphStorage storage) {
+        this.storage = storage;
+        this.traversal = new GraphTraversal(storage);
+    }
+
+    @Override
+    public int execute(Query query) {
+        long start = QueryMetrics.ENABLED ? System.nanoTime() : 0;
+        int result = execute(query, null);
+        if (QueryMetrics.ENABLED) {
+            QueryMetrics.cacheMiss();
+            QueryMetrics.recordQuery(query.getType(), System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    /**
+     * Method that groups queries by type and source node, executes every group at once and then
+     * hands results to consumer in input order. Only results of current group are kept besides
+     * result of every query.
+     * @param queries
+     * @param consumer
+     */
+    @Override
+    public void executeAll(List<Query> queries, ObjIntConsumer<Query> consumer) {
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < queries.size(); i++) {
+            Query query = queries.get(i);
+            groups.computeIfAbsent(query.getType() + " " + query.getSource(), key -> new ArrayList<>()).add(i);
+        }
+        int[] results = new int[queries.size()];
+        for (List<Integer> group : groups.values()) {
+            executeGroup(queries, group, results);
+        }
+        for (int i = 0; i < results.length; i++) {
+            consumer.accept(queries.get(i), results[i]);
+        }
+    }
+
+    private void executeGroup(List<Query> queries, List<Integer> group, int[] results) {
+        Map<Query, Integer> executed = new HashMap<>();
+        // Shortest latencies of the group source, computed by first unconstrained shortest query
+        int[][] latencies = new int[1][];
+        for (int index : group) {
+            Query query = queries.get(index);
+            long start = QueryMetrics.ENABLED ? System.nanoTime() : 0;
+            Integer cached = executed.get(query);
+            if (cached != null) {
+                results[index] = cached;
+                if (QueryMetrics.ENABLED) {
+                    QueryMetrics.cacheHit();
+                    QueryMetrics.recordQuery(query.getType(), System.nanoTime() - start);
+                }
+                continue;
+            }
+            results[index] = execute(query, latencies);
+            executed.put(query, results[index]);
+            if (QueryMetrics.ENABLED) {
+                QueryMetrics.cacheMiss();
+                QueryMetrics.recordQuery(query.getType(), System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * @param query
+     * @param latencies holder of shortest latencies shared by queries of same source, null if not shared
+     * @return
+     */
+    private int execute(Query query, int[][] latencies) {
+        switch (query.getType()) {
+            case WEIGHT:
+                return weight(query);
+            case COUNT:
+                return count(query);
+            default:
+                return shortest(query, latencies);
+        }
+    }
+
+    private int weight(Query query) {
+        List<String> path = query.getPath();
+        int[] nodes = new int[path.size()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = storage.indexOf(path.get(i));
+            if (nodes[i] < 0) {
+                return NO_SUCH_TRACE;
+            }
+        }
+        return traversal.pathWeight(nodes);
+    }
+
+    private int count(Query query) {
+        int source = storage.indexOf(query.getSource());
+        int target = storage.indexOf(query.getTarget());
+        if (source < 0 || target < 0) {
+            return 0;
+        }
+        return traversal.countTraces(source, target, query.getSelection(), query.getValue());
+    }
+
+    private int shortest(Query query, int[][] latencies) {
+        int source = storage.indexOf(query.getSource());
+        int target = storage.indexOf(query.getTarget());
+        if (source < 0 || target < 0) {
+            return NO_SUCH_TRACE;
+        }
+        if (query.hasConstraints()) {
+            return constrainedShortest(query, source, target);
+        }
+        if (latencies == null) {
+            return traversal.shortestLatency(traversal.shortestLatencies(source), source, target);
+        }
+        if (latencies[0] == null) {
+            latencies[0] = traversal.shortestLatencies(source);
+            if (QueryMetrics.ENABLED) {
+                QueryMetrics.sourceCacheMiss();
+            }
+        } else if (QueryMetrics.ENABLED) {
+            QueryMetrics.sourceCacheHit();
+        }
+        return traversal.shortestLatency(latencies[0], source, target);
+    }
+
+    private int constrainedShortest(Query query, int source, int target) {
+        int maxHops = query.getMaxHops() > 0 ? query.getMaxHops() : Integer.MAX_VALUE;
+        BitSet excluded = new BitSet(storage.nodeCount());
+        for (String name : query.getAvoid()) {
+            int node = storage.indexOf(name);
+            if (node >= 0) {
+                excluded.set(node);
+            }
+        }
+        List<String> via = query.getVia();
+        int[] waypoints = new int[via.size()];
+        for (int w = 0; w < waypoints.length; w++) {
+            waypoints[w] = storage.indexOf(via.get(w));
+            if (waypoints[w] < 0) {
+                return NO_SUCH_TRACE;
+            }
+        }
+        return traversal.constrainedShortest(source, target, maxHops, excluded, waypoints);
+    }
+}
@@ -0,0 +1,38 @@
+package com.microservice.monitor.latency.query;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class QueryReader {
+
+    private QueryReader() {
+    }
+
+    /**
+     * Method that reads query file, one query per line, keeping input order.
+     * Empty lines and comments (lines starting with #) are skipped.
+     * @param reader
+     * @return
+     * @throws IOException
+     */
+    public static List<Query> read(BufferedReader reader) throws IOException {
+        List<Query> queries = new ArrayList<>();
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            try {
+                queries.add(Query.parse(trimmed));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+            }
+        }
+        return queries;
+    }
+}
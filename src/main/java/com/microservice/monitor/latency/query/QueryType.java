@@ -0,0 +1,5 @@
+package com.microservice.monitor.latency.query;
+
+public enum QueryType {
+    WEIGHT, COUNT, SHORTEST
+}
@@ -0,0 +1,93 @@
+package com.microservice.monitor.latency.result;
+
+import com.microservice.monitor.latency.query.Query;
+import com.microservice.monitor.latency.query.QueryEngine;
+import com.microservice.monitor.latency.query.QueryType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+public enum ResultFormat {
+
+    /**
+     * Human readable format, i.e. "1. 9" or "5. NO SUCH TRACE". Missing shortest trace is written as 0
+     * same as in original output.
+     */
+    TEXT {
+        @Override
+        void write(Writer writer, int index, Query query, int result) throws IOException {
+            writer.write(Integer.toString(index));
+            writer.write(". ");
+            if (!isNoSuchTrace(result)) {
+                writer.write(Integer.toString(result));
+            } else {
+                writer.write(query.getType() == QueryType.WEIGHT ? "NO SUCH TRACE" : "0");
+            }
+            writer.write('\n');
+        }
+    },
+
+    /**
+     * Comma separated values with header, result column is empty when there is no such trace.
+     * Fields with commas, quotes or line breaks are quoted as defined by RFC 4180.
+     */
+    CSV {
+        @Override
+        void writeHeader(Writer writer) throws IOException {
+            writer.write("index,type,query,result\n");
+        }
+
+        @Override
+        void write(Writer writer, int index, Query query, int result) throws IOException {
+            writer.write(Integer.toString(index));
+            writer.write(',');
+            writer.write(type(query));
+            writer.write(',');
+            writer.write(quote(query.toString()));
+            writer.write(',');
+            if (!isNoSuchTrace(result)) {
+                writer.write(Integer.toString(result));
+            }
+            writer.write('\n');
+        }
+    },
+
+    /**
+     * One JSON object per line, result is null when there is no such trace
+     */
+    JSONL {
+        @Override
+        void write(Writer writer, int index, Query query, int result) throws IOException {
+            writer.write("{\"index\":");
+            writer.write(Integer.toString(index));
+            writer.write(",\"type\":\"");
+            writer.write(type(query));
+            writer.write("\",\"query\":\"");
+            writer.write(query.toString().replace("\\", "\\\\").replace("\"", "\\\""));
+            writer.write("\",\"result\":");
+            writer.write(isNoSuchTrace(result) ? "null" : Integer.toString(result));
+            writer.write("}\n");
+        }
+    };
+
+    void writeHeader(Writer writer) throws IOException {
+    }
+
+    abstract void write(Writer writer, int index, Query query, int result) throws IOException;
+
+    private static boolean isNoSuchTrace(int result) {
+        return result == QueryEngine.NO_SUCH_TRACE;
+    }
+
+    private static String quote(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\n') < 0 && field.indexOf('\r') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    private static String type(Query query) {
+        return query.getType().name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,22 @@
+package com.microservice.monitor.latency.result;
+
+import com.microservice.monitor.latency.query.Query;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of query results. Results are written one by one as they are computed,
+ * so sink never holds more than its output buffer in memory.
+ */
+public interface ResultSink extends Closeable {
+
+    /**
+     * Method that writes result of single query
+     * @param index position of query in query file, starting from 1
+     * @param query
+     * @param result
+     * @throws IOException
+     */
+    void write(int index, Query query, int result) throws IOException;
+}
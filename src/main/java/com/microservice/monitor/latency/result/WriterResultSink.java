@@ -0,0 +1,77 @@
+package com.microservice.monitor.latency.result;
+
+import com.microservice.monitor.latency.query.Query;
+
+import java.io.BufferedWriter;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Result sink that streams formatted results through large buffer into NIO channel,
+ * either file channel or standard output.
+ */
+public class WriterResultSink implements ResultSink {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Writer writer;
+    private final ResultFormat format;
+    private final boolean closeChannel;
+
+    WriterResultSink(WritableByteChannel channel, ResultFormat format, boolean closeChannel) throws IOException {
+        this.writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+        this.format = format;
+        this.closeChannel = closeChannel;
+        format.writeHeader(writer);
+    }
+
+    /**
+     * Method that creates sink writing to file, previous results file is overwritten
+     * @param path
+     * @param format
+     * @return
+     * @throws IOException
+     */
+    public static WriterResultSink toFile(Path path, ResultFormat format) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return new WriterResultSink(channel, format, true);
+    }
+
+    /**
+     * Method that creates sink writing to standard output, standard output stays open on close
+     * @param format
+     * @return
+     * @throws IOException
+     */
+    public static WriterResultSink toStdout(ResultFormat format) throws IOException {
+        return new WriterResultSink(Channels.newChannel(new FileOutputStream(FileDescriptor.out)), format, false);
+    }
+
+    @Override
+    public void write(int index, Query query, int result) throws IOException {
+        format.write(writer, index, query, result);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closeChannel) {
+            writer.close();
+        } else {
+            writer.flush();
+        }
+    }
+}
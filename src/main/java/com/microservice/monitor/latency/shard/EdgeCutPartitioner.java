@@ -0,0 +1,67 @@
+package com.microservice.monitor.latency.shard;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Greedy partitioner that minimises number of edges between shards. Services are visited in
+ * breadth first order and each one is placed on the shard holding most of its already placed
+ * neighbours, as long as that shard is not full. Shards hold at most ceil(services / shards) services.
+ */
+public class EdgeCutPartitioner implements GraphPartitioner {
+
+    @Override
+    public Map<String, Integer> partition(Map<String, Set<String>> neighbours, int shards) {
+        int capacity = (neighbours.size() + shards - 1) / shards;
+        int[] load = new int[shards];
+        Map<String, Integer> partition = new HashMap<>();
+
+        for (String root : new TreeSet<>(neighbours.keySet())) {
+            if (partition.containsKey(root)) {
+                continue;
+            }
+            Deque<String> queue = new ArrayDeque<>();
+            Set<String> queued = new TreeSet<>();
+            queue.add(root);
+            queued.add(root);
+            while (!queue.isEmpty()) {
+                String service = queue.poll();
+                int shard = chooseShard(service, neighbours, partition, load, capacity);
+                partition.put(service, shard);
+                load[shard]++;
+                for (String neighbour : new TreeSet<>(neighbours.get(service))) {
+                    if (!partition.containsKey(neighbour) && queued.add(neighbour)) {
+                        queue.add(neighbour);
+                    }
+                }
+            }
+        }
+        return partition;
+    }
+
+    private int chooseShard(String service, Map<String, Set<String>> neighbours, Map<String, Integer> partition,
+                            int[] load, int capacity) {
+        int[] placedNeighbours = new int[load.length];
+        for (String neighbour : neighbours.get(service)) {
+            Integer shard = partition.get(neighbour);
+            if (shard != null) {
+                placedNeighbours[shard]++;
+            }
+        }
+        int best = -1;
+        for (int shard = 0; shard < load.length; shard++) {
+            if (load[shard] >= capacity) {
+                continue;
+            }
+            if (best == -1 || placedNeighbours[shard] > placedNeighbours[best]
+                    || (placedNeighbours[shard] == placedNeighbours[best] && load[shard] < load[best])) {
+                best = shard;
+            }
+        }
+        return best;
+    }
+}
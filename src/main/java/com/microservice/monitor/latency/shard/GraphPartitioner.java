@@ -0,0 +1,18 @@
+package com.microservice.monitor.latency.shard;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Assigns every service of the topology to one of the shards
+ */
+public interface GraphPartitioner {
+
+    /**
+     * Method that returns shard of every service, shards are numbered from 0
+     * @param neighbours services connected to each service, in any direction
+     * @param shards number of shards
+     * @return
+     */
+    Map<String, Integer> partition(Map<String, Set<String>> neighbours, int shards);
+}
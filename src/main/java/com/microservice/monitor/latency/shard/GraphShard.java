@@ -0,0 +1,176 @@
+package com.microservice.monitor.latency.shard;
+
+import com.microservice.monitor.latency.GraphWeighted;
+import com.microservice.monitor.latency.storage.GraphStorage;
+import com.microservice.monitor.latency.storage.GraphTraversal;
+import com.microservice.monitor.latency.util.Edge;
+import com.microservice.monitor.latency.util.Node;
+import com.microservice.monitor.latency.util.TopologyReader;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Part of the topology owned by one shard. Shard holds edges between its own services in
+ * local graph and keeps edges leaving the shard as boundary edges.
+ * Shortest latencies are computed by {@link GraphTraversal} over storage of the local graph and
+ * cached for bounded number of sources, least recently used source is evicted first.
+ */
+public class GraphShard {
+
+    // 16M latencies, 64MB of shortest path cache
+    private static final long DEFAULT_CACHED_LATENCIES = 1L << 24;
+
+    private final GraphWeighted graph = new GraphWeighted();
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final Map<String, Map<String, Integer>> boundaryEdges = new HashMap<>();
+    private final long cachedLatencies = Long.getLong("latency.cache.shortestLatencies", DEFAULT_CACHED_LATENCIES);
+
+    // Built on first request, once all edges are loaded
+    private GraphStorage storage;
+    private GraphTraversal traversal;
+    private int[] exits;
+    private Map<Integer, int[]> shortestBySource;
+
+    /**
+     * Method that loads only edges starting in services owned by shard
+     * @param inputFile
+     * @param partition
+     * @param shard
+     * @return
+     * @throws IOException
+     */
+    public static GraphShard load(String inputFile, Map<String, Integer> partition, int shard) throws IOException {
+        GraphShard graphShard = new GraphShard();
+        TopologyReader.read(inputFile, (source, destination, weight) -> {
+            if (Integer.valueOf(shard).equals(partition.get(source))) {
+                graphShard.addEdge(source, destination, weight, Integer.valueOf(shard).equals(partition.get(destination)));
+            }
+        });
+        return graphShard;
+    }
+
+    void addEdge(String source, String destination, int weight, boolean local) {
+        Node sourceNode = nodes.computeIfAbsent(source, Node::new);
+        if (local) {
+            graph.addEdge(sourceNode, nodes.computeIfAbsent(destination, Node::new), weight);
+        } else {
+            boundaryEdges.computeIfAbsent(source, key -> new HashMap<>()).put(destination, weight);
+        }
+    }
+
+    /**
+     * Method that answers single request of the shard protocol, both request and response are single line.
+     * <pre>
+     * WEIGHT A B    weight of edge A-B, 0 if there is no such edge
+     * SUMMARY A     shortest latencies from A to other services of this shard with edges
+     *               leaving the shard (exit services) as B:9 C:4
+     * LATENCY A B   shortest latency from A to B inside the shard, for A equal to B shortest
+     *               trace back to A, 0 if there is no such trace
+     * BOUNDARY      edges leaving this shard as A:B:5 C:D:2
+     * </pre>
+     * Requests of all connections are handled one at a time, traversal and its caches are not thread safe.
+     * @param request
+     * @return
+     */
+    public synchronized String handle(String request) {
+        String[] tokens = request.trim().split("\\s+");
+        switch (tokens[0]) {
+            case "WEIGHT":
+                return Integer.toString(tokens.length == 3 ? weight(tokens[1], tokens[2]) : 0);
+            case "SUMMARY":
+                return tokens.length == 2 ? summary(tokens[1]) : "";
+            case "LATENCY":
+                return Integer.toString(tokens.length == 3 ? latency(tokens[1], tokens[2]) : 0);
+            case "BOUNDARY":
+                return boundary();
+            default:
+                return "ERROR unknown request " + tokens[0];
+        }
+    }
+
+    private int weight(String source, String destination) {
+        Node node = nodes.get(source);
+        if (node == null) {
+            return 0;
+        }
+        for (Edge edge : node.getEdges()) {
+            if (edge.getDestination().getName().equals(destination)) {
+                return edge.getWeight();
+            }
+        }
+        return boundaryEdges.getOrDefault(source, Collections.emptyMap()).getOrDefault(destination, 0);
+    }
+
+    private String boundary() {
+        StringBuilder response = new StringBuilder();
+        for (Map.Entry<String, Map<String, Integer>> source : boundaryEdges.entrySet()) {
+            for (Map.Entry<String, Integer> destination : source.getValue().entrySet()) {
+                if (response.length() > 0) {
+                    response.append(' ');
+                }
+                response.append(source.getKey()).append(':').append(destination.getKey())
+                        .append(':').append(destination.getValue());
+            }
+        }
+        return response.toString();
+    }
+
+    private String summary(String source) {
+        int node = index(source);
+        if (node < 0) {
+            return "";
+        }
+        int[] latencies = shortestLatencies(node);
+        StringBuilder response = new StringBuilder();
+        for (int exit : exits) {
+            if (exit == node || latencies[exit] == GraphTraversal.UNREACHABLE) {
+                continue;
+            }
+            if (response.length() > 0) {
+                response.append(' ');
+            }
+            response.append(storage.name(exit)).append(':').append(latencies[exit]);
+        }
+        return response.toString();
+    }
+
+    private int latency(String source, String destination) {
+        int node = index(source);
+        int destinationNode = index(destination);
+        if (node < 0 || destinationNode < 0) {
+            return 0;
+        }
+        int latency = shortestLatencies(node)[destinationNode];
+        return latency == GraphTraversal.UNREACHABLE ? 0 : latency;
+    }
+
+    /**
+     * Method that returns index of service in local graph storage, -1 if service has no local edges
+     * @param service
+     * @return
+     */
+    private int index(String service) {
+        if (storage == null) {
+            storage = graph.getStorage();
+            traversal = new GraphTraversal(storage);
+            exits = boundaryEdges.keySet().stream().mapToInt(storage::indexOf).filter(exit -> exit >= 0).sorted().toArray();
+            int maxSources = (int) Math.min(Integer.MAX_VALUE, Math.max(1, cachedLatencies / Math.max(1, storage.nodeCount())));
+            // Least recently used source is evicted first
+            shortestBySource = new LinkedHashMap<Integer, int[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Integer, int[]> eldest) {
+                    return size() > maxSources;
+                }
+            };
+        }
+        return storage.indexOf(service);
+    }
+
+    private int[] shortestLatencies(int source) {
+        return shortestBySource.computeIfAbsent(source, traversal::shortestLatencies);
+    }
+}
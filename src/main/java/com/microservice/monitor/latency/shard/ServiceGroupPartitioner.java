@@ -0,0 +1,54 @@
+package com.microservice.monitor.latency.shard;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Partitioner that keeps services of same service group on same shard. Groups are
+ * assigned to shards in order of their names, services without a group go to least loaded shard.
+ */
+public class ServiceGroupPartitioner implements GraphPartitioner {
+
+    private final Map<String, String> groups;
+
+    /**
+     * @param groups service group of each service
+     */
+    public ServiceGroupPartitioner(Map<String, String> groups) {
+        this.groups = groups;
+    }
+
+    @Override
+    public Map<String, Integer> partition(Map<String, Set<String>> neighbours, int shards) {
+        Map<String, Integer> groupShards = new HashMap<>();
+        for (String group : new TreeSet<>(groups.values())) {
+            groupShards.put(group, groupShards.size() % shards);
+        }
+
+        Map<String, Integer> partition = new HashMap<>();
+        int[] load = new int[shards];
+        for (String service : new TreeSet<>(neighbours.keySet())) {
+            String group = groups.get(service);
+            if (group != null) {
+                int shard = groupShards.get(group);
+                partition.put(service, shard);
+                load[shard]++;
+            }
+        }
+        for (String service : new TreeSet<>(neighbours.keySet())) {
+            if (!partition.containsKey(service)) {
+                int shard = 0;
+                for (int i = 1; i < shards; i++) {
+                    if (load[i] < load[shard]) {
+                        shard = i;
+                    }
+                }
+                partition.put(service, shard);
+                load[shard]++;
+            }
+        }
+        return partition;
+    }
+}
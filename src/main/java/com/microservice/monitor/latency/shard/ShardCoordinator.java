@@ -0,0 +1,441 @@
+package com.microservice.monitor.latency.shard;
+
+import com.microservice.monitor.latency.metrics.QueryMetrics;
+import com.microservice.monitor.latency.query.Query;
+import com.microservice.monitor.latency.query.QueryEngine;
+import com.microservice.monitor.latency.query.QueryType;
+import com.microservice.monitor.latency.util.RateLimitedLogger;
+import com.microservice.monitor.latency.util.TopologyReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Answers trace weight and shortest trace queries on graph split between shards, where every shard
+ * runs in its own process and is reached over loopback socket. Shortest trace is found with Dijkstra
+ * over boundary overlay: shard local shortest latencies of boundary services (boundary summaries)
+ * plus edges between shards, so only summaries and boundary edges ever leave the shards.
+ */
+public class ShardCoordinator implements QueryEngine, Closeable {
+
+    final static Logger logger = LoggerFactory.getLogger(ShardCoordinator.class);
+
+    final static RateLimitedLogger traceLogger =
+            new RateLimitedLogger(logger, Long.getLong("latency.log.rateLimit", 10));
+
+    private static final String LOG_FILE_PROPERTY = "latency.log.file";
+    private static final String DEFAULT_LOG_FILE = "./logs/logging.log";
+
+    private final Map<String, Integer> partition;
+    private final List<ShardClient> shards = new ArrayList<>();
+    private final List<Process> processes = new ArrayList<>();
+    private final Map<String, Map<String, Integer>> boundaryEdges = new HashMap<>();
+    private final Set<String> exits = new HashSet<>();
+    private final Map<String, Map<String, Integer>> summaries = new HashMap<>();
+    private Path partitionFile;
+
+    /**
+     * Method that connects to already running shards and loads boundary edges and summaries
+     * @param partition shard of every service
+     * @param addresses address of every shard, ordered by shard number
+     */
+    public ShardCoordinator(Map<String, Integer> partition, List<InetSocketAddress> addresses) throws IOException {
+        this.partition = partition;
+        try {
+            for (InetSocketAddress address : addresses) {
+                shards.add(new ShardClient(address));
+            }
+            loadBoundary();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Method that partitions topology of input file, starts every shard as separate local process
+     * and connects to them
+     * @param inputFile
+     * @param partitioner
+     * @param shardCount
+     * @return
+     */
+    public static ShardCoordinator launch(String inputFile, GraphPartitioner partitioner, int shardCount) throws IOException {
+        Map<String, Set<String>> neighbours = new HashMap<>();
+        TopologyReader.read(inputFile, (source, destination, weight) -> {
+            neighbours.computeIfAbsent(source, key -> new HashSet<>()).add(destination);
+            neighbours.computeIfAbsent(destination, key -> new HashSet<>()).add(source);
+        });
+        Map<String, Integer> partition = partitioner.partition(neighbours, shardCount);
+
+        Path partitionFile = Files.createTempFile("partition", ".txt");
+        List<String> lines = new ArrayList<>();
+        partition.forEach((service, shard) -> lines.add(service + " " + shard));
+        Files.write(partitionFile, lines, StandardCharsets.UTF_8);
+
+        List<Process> processes = new ArrayList<>();
+        List<InetSocketAddress> addresses = new ArrayList<>();
+        try {
+            for (int shard = 0; shard < shardCount; shard++) {
+                Process process = startShard(inputFile, partitionFile, shard);
+                processes.add(process);
+                addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), awaitPort(process)));
+            }
+            logger.info("Started {} shards", shardCount);
+            ShardCoordinator coordinator = new ShardCoordinator(partition, addresses);
+            coordinator.processes.addAll(processes);
+            coordinator.partitionFile = partitionFile;
+            return coordinator;
+        } catch (IOException e) {
+            processes.forEach(Process::destroy);
+            Files.deleteIfExists(partitionFile);
+            throw e;
+        }
+    }
+
+    /**
+     * Method that starts shard process with logging and tuning properties of this process,
+     * shard logs into shard-n.log next to coordinator log file
+     * @param inputFile
+     * @param partitionFile
+     * @param shard
+     * @return
+     */
+    private static Process startShard(String inputFile, Path partitionFile, int shard) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        for (String property : System.getProperties().stringPropertyNames()) {
+            if ((property.startsWith("latency.") && !property.equals(LOG_FILE_PROPERTY))
+                    || property.equals("logback.configurationFile")) {
+                command.add("-D" + property + "=" + System.getProperty(property));
+            }
+        }
+        Path logFile = Paths.get(System.getProperty(LOG_FILE_PROPERTY, DEFAULT_LOG_FILE)).resolveSibling("shard-" + shard + ".log");
+        command.add("-D" + LOG_FILE_PROPERTY + "=" + logFile);
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"),
+                ShardServer.class.getName(), inputFile, partitionFile.toString(), Integer.toString(shard)));
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectErrorStream(true);
+        return builder.start();
+    }
+
+    /**
+     * Method that waits for port announced by shard process and then keeps draining its output
+     * @param process
+     * @return
+     */
+    private static int awaitPort(Process process) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(ShardServer.LISTENING)) {
+                Thread drain = new Thread(() -> {
+                    try {
+                        while (reader.readLine() != null) {
+                            // Shard logs into its own shard-n.log file, console output is discarded
+                        }
+                    } catch (IOException ignored) {
+                        // Shard process is gone
+                    }
+                }, "shard-output");
+                drain.setDaemon(true);
+                drain.start();
+                return Integer.parseInt(line.substring(ShardServer.LISTENING.length()).trim());
+            }
+        }
+        throw new IOException("Shard process exited before it started listening");
+    }
+
+    private void loadBoundary() throws IOException {
+        Set<String> entries = new HashSet<>();
+        for (ShardClient shard : shards) {
+            String response = shard.request("BOUNDARY");
+            if (response.isEmpty()) {
+                continue;
+            }
+            for (String edge : response.split(" ")) {
+                String[] parts = edge.split(":");
+                boundaryEdges.computeIfAbsent(parts[0], key -> new HashMap<>()).put(parts[1], Integer.parseInt(parts[2]));
+                exits.add(parts[0]);
+                entries.add(parts[1]);
+            }
+        }
+        // Summaries of services where traces enter the shard are needed by every cross shard query
+        for (String entry : entries) {
+            summary(entry);
+        }
+        logger.info("Loaded {} boundary services", entries.size() + exits.size());
+    }
+
+    /**
+     * Method that checks that every query can be answered on sharded graph, only weight queries
+     * and shortest queries without constraints are supported. Called before shards are started,
+     * so unsupported query fails the run before any result is written.
+     * @param queries
+     */
+    public static void checkSupported(List<Query> queries) {
+        for (Query query : queries) {
+            if (query.getType() == QueryType.COUNT || query.hasConstraints()) {
+                throw new IllegalArgumentException("Query is not supported on sharded graph: " + query
+                        + ", only weight and shortest queries without constraints are supported");
+            }
+        }
+    }
+
+    @Override
+    public void executeAll(List<Query> queries, ObjIntConsumer<Query> consumer) {
+        checkSupported(queries);
+        QueryEngine.super.executeAll(queries, consumer);
+    }
+
+    @Override
+    public int execute(Query query) {
+        long start = QueryMetrics.ENABLED ? System.nanoTime() : 0;
+        checkSupported(Collections.singletonList(query));
+        int result;
+        try {
+            if (query.getType() == QueryType.WEIGHT) {
+                result = weight(query.getPath());
+            } else {
+                result = shortest(query.getSource(), query.getTarget());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (QueryMetrics.ENABLED) {
+            QueryMetrics.cacheMiss();
+            QueryMetrics.recordQuery(query.getType(), System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    private int weight(List<String> path) throws IOException {
+        int weight = 0;
+        for (int i = 0; i < path.size() - 1; i++) {
+            Integer shard = partition.get(path.get(i));
+            int edgeWeight = shard == null ? 0
+                    : Integer.parseInt(shards.get(shard).request("WEIGHT " + path.get(i) + " " + path.get(i + 1)));
+            if (edgeWeight == 0) {
+                traceLogger.warn("NO SUCH TRACE: {}-{}", path.get(i), path.get(i + 1));
+                return NO_SUCH_TRACE;
+            }
+            weight += edgeWeight;
+        }
+        return weight;
+    }
+
+    /**
+     * Method that returns shortest trace latency between two services, for same service shortest
+     * trace back to itself. Target is never expanded, so both cases are handled same way.
+     * Shard local latency to target is requested only for services where best trace enters the target
+     * shard, services reached through summary of target shard service are already covered by its latency.
+     * @param start
+     * @param end
+     * @return
+     */
+    private int shortest(String start, String end) throws IOException {
+        if (!partition.containsKey(start) || !partition.containsKey(end)) {
+            return NO_SUCH_TRACE;
+        }
+        Map<String, Integer> distances = new HashMap<>();
+        Set<String> visited = new HashSet<>();
+        Set<String> covered = new HashSet<>();
+        PriorityQueue<Map.Entry<String, Integer>> queue = new PriorityQueue<>(Map.Entry.comparingByValue());
+        distances.put(start, 0);
+        queue.add(new AbstractMap.SimpleEntry<>(start, 0));
+
+        int best = Integer.MAX_VALUE;
+        while (!queue.isEmpty()) {
+            Map.Entry<String, Integer> current = queue.poll();
+            String service = current.getKey();
+            int distance = current.getValue();
+            if (distance >= best) {
+                break;
+            }
+            if (!visited.add(service)) {
+                continue;
+            }
+            if (QueryMetrics.ENABLED) {
+                QueryMetrics.nodeExpanded();
+            }
+
+            // Inside the shard only target and services with edges leaving the shard are of interest
+            boolean targetShard = partition.get(service).equals(partition.get(end));
+            if (targetShard && !covered.contains(service)) {
+                int latency = Integer.parseInt(shards.get(partition.get(service)).request("LATENCY " + service + " " + end));
+                if (latency > 0) {
+                    best = Math.min(best, distance + latency);
+                }
+            }
+            for (Map.Entry<String, Integer> local : summary(service).entrySet()) {
+                String destination = local.getKey();
+                if (!destination.equals(end) && relax(destination, distance + local.getValue(), distances, queue)) {
+                    if (targetShard) {
+                        covered.add(destination);
+                    } else {
+                        covered.remove(destination);
+                    }
+                }
+            }
+            for (Map.Entry<String, Integer> edge : boundaryEdges.getOrDefault(service, Collections.emptyMap()).entrySet()) {
+                if (edge.getKey().equals(end)) {
+                    best = Math.min(best, distance + edge.getValue());
+                } else if (relax(edge.getKey(), distance + edge.getValue(), distances, queue)) {
+                    covered.remove(edge.getKey());
+                }
+            }
+        }
+        if (best == Integer.MAX_VALUE) {
+            traceLogger.warn("NO SUCH TRACE: {}-{}", start, end);
+            return NO_SUCH_TRACE;
+        }
+        return best;
+    }
+
+    /**
+     * Method that lowers known distance of service
+     * @param service
+     * @param distance
+     * @param distances
+     * @param queue
+     * @return true if distance was lowered
+     */
+    private boolean relax(String service, int distance, Map<String, Integer> distances,
+                          PriorityQueue<Map.Entry<String, Integer>> queue) {
+        Integer known = distances.get(service);
+        if (known == null || distance < known) {
+            distances.put(service, distance);
+            queue.add(new AbstractMap.SimpleEntry<>(service, distance));
+            if (QueryMetrics.ENABLED) {
+                QueryMetrics.edgeRelaxed();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Method that returns shard local shortest latencies from service to exit services of its shard,
+     * fetched once per service. Summaries are limited to exits, so cached summaries grow with number
+     * of boundary services and not with size of the shards.
+     * @param service
+     * @return
+     */
+    private Map<String, Integer> summary(String service) throws IOException {
+        Map<String, Integer> summary = summaries.get(service);
+        if (summary != null) {
+            if (QueryMetrics.ENABLED) {
+                QueryMetrics.sourceCacheHit();
+            }
+            return summary;
+        }
+        if (QueryMetrics.ENABLED) {
+            QueryMetrics.sourceCacheMiss();
+        }
+        summary = new HashMap<>();
+        String response = shards.get(partition.get(service)).request("SUMMARY " + service);
+        if (!response.isEmpty()) {
+            for (String latency : response.split(" ")) {
+                int separator = latency.indexOf(':');
+                summary.put(latency.substring(0, separator), Integer.parseInt(latency.substring(separator + 1)));
+            }
+        }
+        summaries.put(service, summary);
+        return summary;
+    }
+
+    /**
+     * Method that stops shard processes started by this coordinator and closes connections
+     */
+    @Override
+    public void close() throws IOException {
+        for (ShardClient shard : shards) {
+            shard.shutdown();
+        }
+        for (Process process : processes) {
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroy();
+                }
+            } catch (InterruptedException e) {
+                process.destroy();
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (partitionFile != null) {
+            Files.deleteIfExists(partitionFile);
+        }
+    }
+
+    /**
+     * Connection to single shard, requests are sent one by one
+     */
+    private static class ShardClient {
+        private final Socket socket;
+        private final BufferedReader reader;
+        private final BufferedWriter writer;
+
+        ShardClient(InetSocketAddress address) throws IOException {
+            socket = new Socket(address.getAddress(), address.getPort());
+            socket.setTcpNoDelay(true);
+            reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        String request(String request) throws IOException {
+            writer.write(request);
+            writer.write('\n');
+            writer.flush();
+            String response = reader.readLine();
+            if (response == null) {
+                throw new IOException("Shard closed connection");
+            }
+            if (response.startsWith("ERROR")) {
+                throw new IOException(response);
+            }
+            return response;
+        }
+
+        void shutdown() {
+            try {
+                writer.write(ShardServer.SHUTDOWN);
+                writer.write('\n');
+                writer.flush();
+            } catch (IOException e) {
+                logger.warn("Failed to shut down shard", e);
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close shard connection", e);
+                }
+            }
+        }
+    }
+}
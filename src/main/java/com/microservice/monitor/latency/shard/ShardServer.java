@@ -0,0 +1,128 @@
+package com.microservice.monitor.latency.shard;
+
+import com.microservice.monitor.latency.util.RateLimitedLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Serves one shard on loopback socket. Every connection is handled in its own thread,
+ * requests are described in {@link GraphShard#handle(String)}, SHUTDOWN stops the server.
+ */
+public class ShardServer {
+
+    final static Logger logger = LoggerFactory.getLogger(ShardServer.class);
+
+    static final String LISTENING = "LISTENING ";
+    static final String SHUTDOWN = "SHUTDOWN";
+
+    private final GraphShard shard;
+    private final ServerSocket serverSocket;
+
+    public ShardServer(GraphShard shard) throws IOException {
+        this.shard = shard;
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Process entry point, arguments are input file, partition file (lines "A 0") and shard number.
+     * Port is printed to standard output as "LISTENING port" once shard is loaded.
+     * @param args
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            throw new IllegalArgumentException("Input file, partition file and shard number required !");
+        }
+        int shardId = Integer.parseInt(args[2]);
+        GraphShard shard = GraphShard.load(args[0], readPartition(args[1]), shardId);
+        ShardServer server = new ShardServer(shard);
+        logger.info("Shard {} listening on port {}", shardId, server.getPort());
+        System.out.println(LISTENING + server.getPort());
+        System.out.flush();
+        server.serve();
+        RateLimitedLogger.flushAll();
+    }
+
+    /**
+     * Method that reads partition file, one "service shard" pair per line
+     * @param partitionFile
+     * @return
+     */
+    public static Map<String, Integer> readPartition(String partitionFile) throws IOException {
+        Map<String, Integer> partition = new HashMap<>();
+        for (String line : Files.readAllLines(Paths.get(partitionFile), StandardCharsets.UTF_8)) {
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens.length == 2) {
+                partition.put(tokens[0], Integer.parseInt(tokens[1]));
+            }
+        }
+        return partition;
+    }
+
+    /**
+     * Method that accepts connections until SHUTDOWN request is received
+     */
+    public void serve() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread thread = new Thread(() -> handle(socket), "shard-connection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("Failed to accept connection", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Method that starts serving in background daemon thread
+     */
+    public void start() {
+        Thread thread = new Thread(this::serve, "shard-server");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void stop() throws IOException {
+        serverSocket.close();
+    }
+
+    private void handle(Socket socket) {
+        try (Socket s = socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8))) {
+            String request;
+            while ((request = reader.readLine()) != null) {
+                if (SHUTDOWN.equals(request.trim())) {
+                    stop();
+                    return;
+                }
+                writer.write(shard.handle(request));
+                writer.write('\n');
+                writer.flush();
+            }
+        } catch (IOException e) {
+            logger.warn("Shard connection failed", e);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.microservice.monitor.latency.storage;
+
+import java.io.Closeable;
+
+/**
+ * Read only adjacency of the graph addressed by primitive indices. Nodes are numbered from 0
+ * to nodeCount - 1, edges of node are numbered from firstEdge(node) to firstEdge(node) + degree(node) - 1.
+ */
+public interface GraphStorage extends Closeable {
+
+    int nodeCount();
+
+    long edgeCount();
+
+    /**
+     * Method that returns index of node by node name
+     * @param name
+     * @return index of node, -1 if there is no such node
+     */
+    int indexOf(String name);
+
+    String name(int node);
+
+    long firstEdge(int node);
+
+    int degree(int node);
+
+    int destination(long edge);
+
+    int weight(long edge);
+}
@@ -0,0 +1,380 @@
+package com.microservice.monitor.latency.storage;
+
+import com.microservice.monitor.latency.PathConstraints;
+import com.microservice.monitor.latency.Selection;
+import com.microservice.monitor.latency.metrics.QueryMetrics;
+import com.microservice.monitor.latency.util.RateLimitedLogger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Graph traversals on primitive indices of {@link GraphStorage}. This is the only implementation of
+ * the queries, heap graph ({@link HeapGraphStorage}) and off-heap storages are traversed by same code,
+ * so results never depend on where the graph is kept.
+ * Search queues and labels are primitive arrays, so traversals do not allocate per node or per edge.
+ * Traversal is not thread safe, concurrent callers need traversal of their own or external synchronization.
+ */
+public class GraphTraversal {
+
+    final static Logger logger = LoggerFactory.getLogger(GraphTraversal.class);
+
+    // Misses are logged from recursive traversals, so warnings are rate limited per message
+    final static RateLimitedLogger traceLogger =
+            new RateLimitedLogger(logger, Long.getLong("latency.log.rateLimit", 10));
+
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    // Upper bound of (node, visited waypoints) states of constrained shortest path search
+    private static final long MAX_LABEL_STATES = 1L << 26;
+
+    private final GraphStorage storage;
+    private BitSet reachedFromOthers;
+
+    public GraphTraversal(GraphStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * Method that returns weight of trace through given nodes, UNREACHABLE if some of the edges does not exist
+     * @param path node indices, -1 for unknown node
+     * @return
+     */
+    public int pathWeight(int[] path) {
+        int weight = 0;
+        for (int i = 0; i < path.length - 1; i++) {
+            int edgeWeight = path[i] < 0 || path[i + 1] < 0 ? 0 : edgeWeight(path[i], path[i + 1]);
+            // Handle case of non existing connection
+            if (edgeWeight == 0) {
+                return noSuchTrace(path[i], path[i + 1]);
+            }
+            weight += edgeWeight;
+        }
+        return weight;
+    }
+
+    private int edgeWeight(int source, int destination) {
+        long first = storage.firstEdge(source);
+        long end = first + storage.degree(source);
+        for (long edge = first; edge < end; edge++) {
+            if (storage.destination(edge) == destination) {
+                return storage.weight(edge);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Method that returns number of traces selected by maximum number of hops, exact number of hops or
+     * maximum latency. Traces are enumerated from start to end and may pass through end (or start) more
+     * than once. Traces from node back to itself exist only if some other node has edge to it.
+     * @param start -1 for unknown node
+     * @param end -1 for unknown node
+     * @param selection
+     * @param value
+     * @return
+     */
+    public int countTraces(int start, int end, Selection selection, int value) {
+        if (start < 0 || end < 0 || (start == end && !isReachedFromOthers(start))) {
+            noSuchTrace(start, end);
+            return 0;
+        }
+        int count;
+        switch (selection) {
+            case MAX_LATENCY:
+                count = countByMaxLatency(start, end, value, 0);
+                break;
+            case MAX_HOOPS:
+                count = countByMaxHops(start, end, value, 0);
+                break;
+            default:
+                count = countByExactHops(start, end, value, 0);
+        }
+        if (count == 0) {
+            noSuchTrace(start, end);
+        }
+        return count;
+    }
+
+    private int countByMaxHops(int node, int target, int maxHops, int hops) {
+        if (QueryMetrics.ENABLED) {
+            QueryMetrics.nodeExpanded();
+        }
+        int count = 0;
+        long first = storage.firstEdge(node);
+        long end = first + storage.degree(node);
+        for (long edge = first; edge < end; edge++) {
+            int destination = storage.destination(edge);
+            if (destination == target) {
+                count++;
+                if (QueryMetrics.ENABLED) {
+                    QueryMetrics.pathEnumerated();
+                }
+            }
+            if (hops + 1 < maxHops) {
+                count += countByMaxHops(destination, target, maxHops, hops + 1);
+            }
+        }
+        return count;
+    }
+
+    private int countByExactHops(int node, int target, int exactHops, int hops) {
+        if (QueryMetrics.ENABLED) {
+            QueryMetrics.nodeExpanded();
+        }
+        int count = 0;
+        long first = storage.firstEdge(node);
+        long end = first + storage.degree(node);
+        for (long edge = first; edge < end; edge++) {
+            int destination = storage.destination(edge);
+            if (destination == target && hops + 1 == exactHops) {
+                count++;
+                if (QueryMetrics.ENABLED) {
+                    QueryMetrics.pathEnumerated();
+                }
+            }
+            if (hops + 1 < exactHops) {
+                count += countByExactHops(destination, target, exactHops, hops + 1);
+            }
+        }
+        return count;
+    }
+
+    private int countByMaxLatency(int node, int target, int maxLatency, int latency) {
+        if (QueryMetrics.ENABLED) {
+            QueryMetrics.nodeExpanded();
+        }
+        int count = 0;
+        long first = storage.firstEdge(node);
+        long end = first + storage.degree(node);
+        for (long edge = first; edge < end; edge++) {
+            int weight = storage.weight(edge);
+            // Zero weight edges would make number of traces unbounded
+            if (weight <= 0 || latency + weight >= maxLatency) {
+                continue;
+            }
+            int destination = storage.destination(edge);
+            if (destination == target) {
+                count++;
+                if (QueryMetrics.ENABLED) {
+                    QueryMetrics.pathEnumerated();
+                }
+            }
+            count += countByMaxLatency(destination, target, maxLatency, latency + weight);
+        }
+        return count;
+    }
+
+    /**
+     * Method that checks if there is at least one edge from any other node to input node
+     * @param node
+     * @return
+     */
+    private boolean isReachedFromOthers(int node) {
+        if (reachedFromOthers == null) {
+            BitSet reached = new BitSet(storage.nodeCount());
+            for (int source = 0; source < storage.nodeCount(); source++) {
+                long first = storage.firstEdge(source);
+                long end = first + storage.degree(source);
+                for (long edge = first; edge < end; edge++) {
+                    int destination = storage.destination(edge);
+                    if (destination != source) {
+                        reached.set(destination);
+                    }
+                }
+            }
+            reachedFromOthers = reached;
+        }
+        return reachedFromOthers.get(node);
+    }
+
+    /**
+     * Method that returns shortest latencies from source to every node using single Dijkstra run,
+     * so one call can serve many targets of same source. Entry for source holds latency of shortest
+     * trace back to itself (excluding direct connection to itself), unreachable nodes are UNREACHABLE.
+     * Queue entries are packed as latency in upper and node in lower 32 bits.
+     * @param source
+     * @return
+     */
+    public int[] shortestLatencies(int source) {
+        int[] latencies = new int[storage.nodeCount()];
+        Arrays.fill(latencies, UNREACHABLE);
+        BitSet visited = new BitSet(storage.nodeCount());
+        LongHeap queue = new LongHeap();
+        latencies[source] = 0;
+        queue.add(source);
+
+        int cycle = UNREACHABLE;
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int node = (int) entry;
+            if (visited.get(node)) {
+                continue;
+            }
+            visited.set(node);
+            if (QueryMetrics.ENABLED) {
+                QueryMetrics.nodeExpanded();
+            }
+            int latency = (int) (entry >>> 32);
+            long first = storage.firstEdge(node);
+            long end = first + storage.degree(node);
+            for (long edge = first; edge < end; edge++) {
+                int destination = storage.destination(edge);
+                int candidate = latency + storage.weight(edge);
+                if (destination == source) {
+                    // Trace back to source, self loops are not counted as traces
+                    if (node != source && candidate < cycle) {
+                        cycle = candidate;
+                    }
+                    continue;
+                }
+                if (candidate < latencies[destination]) {
+                    latencies[destination] = candidate;
+                    queue.add(((long) candidate << 32) | destination);
+                    if (QueryMetrics.ENABLED) {
+                        QueryMetrics.edgeRelaxed();
+                    }
+                }
+            }
+        }
+        latencies[source] = cycle;
+        return latencies;
+    }
+
+    /**
+     * Method that returns latency to end out of shortestLatencies(start), UNREACHABLE if there is no such trace
+     * @param latencies
+     * @param start
+     * @param end
+     * @return
+     */
+    public int shortestLatency(int[] latencies, int start, int end) {
+        if (end < 0 || latencies[end] == UNREACHABLE) {
+            return noSuchTrace(start, end);
+        }
+        return latencies[end];
+    }
+
+    /**
+     * Method that returns shortest latency between two nodes (or back to same node) that satisfies
+     * constraints. Label setting search over (latency, hops) labels per node and set of visited waypoints:
+     * labels are settled in latency order, so label is dominated as soon as label with same node and
+     * waypoints and no more hops is settled. Labels are kept in primitive arrays and queue entries are
+     * packed as latency in upper and label in lower 32 bits. Returns UNREACHABLE if there is no such trace.
+     * @param start
+     * @param end
+     * @param maxHops maximum number of hops, Integer.MAX_VALUE if not limited
+     * @param excluded nodes trace must not pass through
+     * @param waypoints nodes trace must pass through in any order, -1 for unknown node
+     * @return
+     */
+    public int constrainedShortest(int start, int end, int maxHops, BitSet excluded, int[] waypoints) {
+        if (waypoints.length > PathConstraints.MAX_WAYPOINTS) {
+            throw new IllegalArgumentException("At most " + PathConstraints.MAX_WAYPOINTS + " waypoints are supported");
+        }
+        if (start < 0 || end < 0 || excluded.get(start) || excluded.get(end)) {
+            return noSuchTrace(start, end);
+        }
+        for (int waypoint : waypoints) {
+            if (waypoint < 0 || excluded.get(waypoint)) {
+                return noSuchTrace(start, end);
+            }
+        }
+        long states = (long) storage.nodeCount() << waypoints.length;
+        if (states > MAX_LABEL_STATES) {
+            throw new IllegalArgumentException("Too many waypoints for graph of " + storage.nodeCount() + " nodes");
+        }
+        int fullMask = (1 << waypoints.length) - 1;
+        boolean hopLimited = maxHops != Integer.MAX_VALUE;
+
+        // Fewest hops of settled label per (node, waypoints) state
+        int[] settledHops = new int[(int) states];
+        Arrays.fill(settledHops, Integer.MAX_VALUE);
+        Labels labels = new Labels();
+        LongHeap queue = new LongHeap();
+        queue.add(labels.add(start, waypointBits(waypoints, start), 0));
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int label = (int) entry;
+            int latency = (int) (entry >>> 32);
+            int node = labels.nodes[label];
+            int mask = labels.masks[label];
+            int hops = labels.hops[label];
+            // Trace back to start node is found only after leaving it, so target is checked before dominance
+            if (node == end && mask == fullMask && hops > 0) {
+                return latency;
+            }
+            int state = (node << waypoints.length) | mask;
+            if (settledHops[state] <= hops || (!hopLimited && settledHops[state] != Integer.MAX_VALUE)) {
+                continue;
+            }
+            settledHops[state] = hops;
+            if (QueryMetrics.ENABLED) {
+                QueryMetrics.nodeExpanded();
+            }
+            if (hops == maxHops) {
+                continue;
+            }
+
+            long first = storage.firstEdge(node);
+            long last = first + storage.degree(node);
+            for (long edge = first; edge < last; edge++) {
+                int destination = storage.destination(edge);
+                // Self loops are not counted as traces
+                if (destination == node || excluded.get(destination)) {
+                    continue;
+                }
+                int destinationMask = mask | waypointBits(waypoints, destination);
+                boolean target = destination == end && destinationMask == fullMask;
+                if (!target && settledHops[(destination << waypoints.length) | destinationMask] <= hops + 1) {
+                    continue;
+                }
+                int destinationLabel = labels.add(destination, destinationMask, hops + 1);
+                queue.add(((long) (latency + storage.weight(edge)) << 32) | destinationLabel);
+                if (QueryMetrics.ENABLED) {
+                    QueryMetrics.edgeRelaxed();
+                }
+            }
+        }
+        return noSuchTrace(start, end);
+    }
+
+    private static int waypointBits(int[] waypoints, int node) {
+        int bits = 0;
+        for (int w = 0; w < waypoints.length; w++) {
+            if (waypoints[w] == node) {
+                bits |= 1 << w;
+            }
+        }
+        return bits;
+    }
+
+    private int noSuchTrace(int start, int end) {
+        traceLogger.warn("NO SUCH TRACE: {}-{}", start < 0 ? "?" : storage.name(start), end < 0 ? "?" : storage.name(end));
+        return UNREACHABLE;
+    }
+
+    /**
+     * Search labels of constrained shortest path as parallel primitive arrays, latency is kept in queue entry
+     */
+    private static class Labels {
+        private int[] nodes = new int[64];
+        private int[] masks = new int[64];
+        private int[] hops = new int[64];
+        private int size;
+
+        int add(int node, int mask, int hopCount) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                masks = Arrays.copyOf(masks, size * 2);
+                hops = Arrays.copyOf(hops, size * 2);
+            }
+            nodes[size] = node;
+            masks[size] = mask;
+            hops[size] = hopCount;
+            return size++;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.microservice.monitor.latency.storage;
+
+import com.microservice.monitor.latency.util.Edge;
+import com.microservice.monitor.latency.util.Node;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Graph storage in primitive arrays on Java heap, same compressed sparse row layout as
+ * {@link OffHeapGraphStorage}. Built as snapshot of node and edge objects, so heap graph
+ * is traversed by the same {@link GraphTraversal} as off-heap storages.
+ */
+public class HeapGraphStorage implements GraphStorage {
+
+    private final String[] names;
+    private final Map<String, Integer> indices;
+    private final int[] firstEdges;
+    private final int[] destinations;
+    private final int[] weights;
+
+    private HeapGraphStorage(String[] names, Map<String, Integer> indices,
+                             int[] firstEdges, int[] destinations, int[] weights) {
+        this.names = names;
+        this.indices = indices;
+        this.firstEdges = firstEdges;
+        this.destinations = destinations;
+        this.weights = weights;
+    }
+
+    /**
+     * Method that copies adjacency of nodes, node is indexed by its position in the list.
+     * Every edge destination must be in the list.
+     * @param nodes
+     * @return
+     */
+    public static HeapGraphStorage of(List<Node> nodes) {
+        String[] names = new String[nodes.size()];
+        Map<String, Integer> indices = new HashMap<>();
+        int[] firstEdges = new int[nodes.size() + 1];
+        for (int node = 0; node < nodes.size(); node++) {
+            names[node] = nodes.get(node).getName();
+            indices.put(names[node], node);
+            firstEdges[node + 1] = firstEdges[node] + nodes.get(node).getEdges().size();
+        }
+
+        int[] destinations = new int[firstEdges[nodes.size()]];
+        int[] weights = new int[destinations.length];
+        int edge = 0;
+        for (Node node : nodes) {
+            for (Edge e : node.getEdges()) {
+                destinations[edge] = indices.get(e.getDestination().getName());
+                weights[edge] = e.getWeight();
+                edge++;
+            }
+        }
+        return new HeapGraphStorage(names, indices, firstEdges, destinations, weights);
+    }
+
+    @Override
+    public int nodeCount() {
+        return names.length;
+    }
+
+    @Override
+    public long edgeCount() {
+        return destinations.length;
+    }
+
+    @Override
+    public int indexOf(String name) {
+        Integer index = indices.get(name);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public String name(int node) {
+        return names[node];
+    }
+
+    @Override
+    public long firstEdge(int node) {
+        return firstEdges[node];
+    }
+
+    @Override
+    public int degree(int node) {
+        return firstEdges[node + 1] - firstEdges[node];
+    }
+
+    @Override
+    public int destination(long edge) {
+        return destinations[(int) edge];
+    }
+
+    @Override
+    public int weight(long edge) {
+        return weights[(int) edge];
+    }
+
+    @Override
+    public void close() {
+    }
+}
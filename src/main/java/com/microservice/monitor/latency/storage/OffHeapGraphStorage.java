@@ -0,0 +1,230 @@
+package com.microservice.monitor.latency.storage;
+
+import com.microservice.monitor.latency.util.TopologyReader;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Graph storage that keeps adjacency and edge weights outside of Java heap, in compressed sparse row
+ * layout of fixed width records:
+ * <pre>
+ * node record (16 bytes): long first edge, int degree, int unused
+ * edge record  (8 bytes): int destination, int weight
+ * </pre>
+ * Records live either in direct byte buffers or in memory mapped file, which may be larger than RAM.
+ * Buffers are split into 1GB chunks, so regions are not limited by 2GB ByteBuffer size.
+ * Only node names stay on heap.
+ */
+public class OffHeapGraphStorage implements GraphStorage {
+
+    private static final int NODE_RECORD = 16;
+    private static final int EDGE_RECORD = 8;
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final List<String> names;
+    private final Map<String, Integer> indices;
+    private long edgeCount;
+    private final ByteBuffer[] nodeRegion;
+    private final ByteBuffer[] edgeRegion;
+    private final FileChannel channel;
+
+    private OffHeapGraphStorage(List<String> names, Map<String, Integer> indices,
+                                ByteBuffer[] nodeRegion, ByteBuffer[] edgeRegion, FileChannel channel) {
+        this.names = names;
+        this.indices = indices;
+        this.nodeRegion = nodeRegion;
+        this.edgeRegion = edgeRegion;
+        this.channel = channel;
+    }
+
+    /**
+     * Method that loads input file into direct byte buffers
+     * @param inputFile
+     * @return
+     */
+    public static OffHeapGraphStorage load(String inputFile) throws IOException {
+        return load(inputFile, null);
+    }
+
+    /**
+     * Method that loads input file into memory mapped file, previous content of the file is overwritten.
+     * Input file is read twice, first pass counts edges of every node and second pass writes edge records,
+     * so edges are never held on heap.
+     * @param inputFile
+     * @param mappedFile file backing the storage, direct byte buffers are used if null
+     * @return
+     */
+    public static OffHeapGraphStorage load(String inputFile, Path mappedFile) throws IOException {
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> indices = new HashMap<>();
+        int[][] degrees = {new int[16]};
+        long[] edges = {0};
+        TopologyReader.read(inputFile, (source, destination, weight) -> {
+            int s = index(source, names, indices);
+            index(destination, names, indices);
+            if (degrees[0].length < names.size()) {
+                degrees[0] = Arrays.copyOf(degrees[0], Math.max(degrees[0].length * 2, names.size()));
+            }
+            degrees[0][s]++;
+            edges[0]++;
+        });
+
+        long nodeBytes = (long) names.size() * NODE_RECORD;
+        long edgeBytes = edges[0] * EDGE_RECORD;
+        FileChannel channel = null;
+        ByteBuffer[] nodeRegion;
+        ByteBuffer[] edgeRegion;
+        if (mappedFile == null) {
+            nodeRegion = allocateDirect(nodeBytes);
+            edgeRegion = allocateDirect(edgeBytes);
+        } else {
+            channel = FileChannel.open(mappedFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            nodeRegion = map(channel, 0, nodeBytes);
+            edgeRegion = map(channel, nodeBytes, edgeBytes);
+        }
+
+        long firstEdge = 0;
+        for (int node = 0; node < names.size(); node++) {
+            long position = (long) node * NODE_RECORD;
+            chunk(nodeRegion, position).putLong(offset(position), firstEdge);
+            chunk(nodeRegion, position).putInt(offset(position) + 8, 0);
+            firstEdge += degrees[0][node];
+        }
+
+        OffHeapGraphStorage storage = new OffHeapGraphStorage(names, indices, nodeRegion, edgeRegion, channel);
+        TopologyReader.read(inputFile, (source, destination, weight) ->
+                storage.putEdge(indices.get(source), indices.get(destination), weight));
+        return storage;
+    }
+
+    private static int index(String name, List<String> names, Map<String, Integer> indices) {
+        Integer index = indices.get(name);
+        if (index == null) {
+            index = names.size();
+            indices.put(name, index);
+            names.add(name);
+        }
+        return index;
+    }
+
+    private static ByteBuffer[] allocateDirect(long bytes) {
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(bytes)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = ByteBuffer.allocateDirect((int) Math.min(CHUNK_SIZE, bytes - i * CHUNK_SIZE))
+                    .order(ByteOrder.nativeOrder());
+        }
+        return chunks;
+    }
+
+    private static ByteBuffer[] map(FileChannel channel, long base, long bytes) throws IOException {
+        ByteBuffer[] chunks = new ByteBuffer[chunkCount(bytes)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, base + i * CHUNK_SIZE,
+                    Math.min(CHUNK_SIZE, bytes - i * CHUNK_SIZE)).order(ByteOrder.nativeOrder());
+        }
+        return chunks;
+    }
+
+    private static int chunkCount(long bytes) {
+        return (int) ((bytes + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+    }
+
+    // Records are aligned to their size and chunk size is multiple of both, so record never spans two chunks
+    private static ByteBuffer chunk(ByteBuffer[] region, long position) {
+        return region[(int) (position >>> CHUNK_SHIFT)];
+    }
+
+    private static int offset(long position) {
+        return (int) (position & CHUNK_MASK);
+    }
+
+    /**
+     * Method that writes edge record, weight of already existing edge is overwritten
+     * same as in GraphWeighted
+     */
+    private void putEdge(int source, int destination, int weight) {
+        long first = firstEdge(source);
+        int degree = degree(source);
+        for (long edge = first; edge < first + degree; edge++) {
+            if (destination(edge) == destination) {
+                long position = edge * EDGE_RECORD;
+                chunk(edgeRegion, position).putInt(offset(position) + 4, weight);
+                return;
+            }
+        }
+        long position = (first + degree) * EDGE_RECORD;
+        chunk(edgeRegion, position).putInt(offset(position), destination);
+        chunk(edgeRegion, position).putInt(offset(position) + 4, weight);
+        long nodePosition = (long) source * NODE_RECORD;
+        chunk(nodeRegion, nodePosition).putInt(offset(nodePosition) + 8, degree + 1);
+        edgeCount++;
+    }
+
+    @Override
+    public int nodeCount() {
+        return names.size();
+    }
+
+    @Override
+    public long edgeCount() {
+        return edgeCount;
+    }
+
+    @Override
+    public int indexOf(String name) {
+        Integer index = indices.get(name);
+        return index == null ? -1 : index;
+    }
+
+    @Override
+    public String name(int node) {
+        return names.get(node);
+    }
+
+    @Override
+    public long firstEdge(int node) {
+        long position = (long) node * NODE_RECORD;
+        return chunk(nodeRegion, position).getLong(offset(position));
+    }
+
+    @Override
+    public int degree(int node) {
+        long position = (long) node * NODE_RECORD;
+        return chunk(nodeRegion, position).getInt(offset(position) + 8);
+    }
+
+    @Override
+    public int destination(long edge) {
+        long position = edge * EDGE_RECORD;
+        return chunk(edgeRegion, position).getInt(offset(position));
+    }
+
+    @Override
+    public int weight(long edge) {
+        long position = edge * EDGE_RECORD;
+        return chunk(edgeRegion, position).getInt(offset(position) + 4);
+    }
+
+    /**
+     * Method that closes backing file. Direct and mapped buffers are released once storage is collected.
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.microservice.monitor.latency.util;
+
+import org.slf4j.Logger;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Warning logger for hot paths that lets through at most given number of messages per second
+ * for each message format, other messages are only counted. Number of suppressed messages is
+ * logged with the first message of the next second, or by background flush once the second is
+ * over and no message followed. Suppressed messages are not formatted, so they cost only a map
+ * lookup and a couple of atomic operations.
+ */
+public class RateLimitedLogger {
+
+    private static final long INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final Queue<RateLimitedLogger> LOGGERS = new ConcurrentLinkedQueue<>();
+
+    static {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rate-limited-logger-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> LOGGERS.forEach(RateLimitedLogger::flushExpired), 1, 1, TimeUnit.SECONDS);
+    }
+
+    private final Logger logger;
+    private final long permitsPerSecond;
+    private final ConcurrentHashMap<String, Window> windows = new ConcurrentHashMap<>();
+
+    public RateLimitedLogger(Logger logger, long permitsPerSecond) {
+        this.logger = logger;
+        this.permitsPerSecond = permitsPerSecond;
+        LOGGERS.add(this);
+    }
+
+    /**
+     * Method that logs number of suppressed messages of all rate limited loggers,
+     * called before exit so messages suppressed in the last second are reported too
+     */
+    public static void flushAll() {
+        LOGGERS.forEach(RateLimitedLogger::flush);
+    }
+
+    public void warn(String format, Object arg) {
+        if (logger.isWarnEnabled() && acquire(format)) {
+            logger.warn(format, arg);
+        }
+    }
+
+    public void warn(String format, Object arg1, Object arg2) {
+        if (logger.isWarnEnabled() && acquire(format)) {
+            logger.warn(format, arg1, arg2);
+        }
+    }
+
+    /**
+     * Method that logs number of suppressed messages of every message format
+     */
+    public void flush() {
+        for (Map.Entry<String, Window> entry : windows.entrySet()) {
+            report(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void flushExpired() {
+        long now = System.nanoTime();
+        for (Map.Entry<String, Window> entry : windows.entrySet()) {
+            roll(entry.getKey(), entry.getValue(), now);
+        }
+    }
+
+    private boolean acquire(String format) {
+        Window window = windows.get(format);
+        if (window == null) {
+            window = windows.computeIfAbsent(format, key -> new Window());
+        }
+
+        roll(format, window, System.nanoTime());
+
+        if (window.used.incrementAndGet() <= permitsPerSecond) {
+            return true;
+        }
+        window.suppressed.increment();
+        return false;
+    }
+
+    private void roll(String format, Window window, long now) {
+        long start = window.start.get();
+        if (now - start >= INTERVAL_NANOS && window.start.compareAndSet(start, now)) {
+            window.used.set(0);
+            report(format, window);
+        }
+    }
+
+    private void report(String format, Window window) {
+        long suppressed = window.suppressed.sumThenReset();
+        if (suppressed > 0) {
+            logger.warn("{} messages suppressed: {}", suppressed, format);
+        }
+    }
+
+    private static class Window {
+        private final AtomicLong start = new AtomicLong(System.nanoTime());
+        private final AtomicLong used = new AtomicLong();
+        private final LongAdder suppressed = new LongAdder();
+    }
+}
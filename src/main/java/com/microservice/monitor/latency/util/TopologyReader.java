@@ -0,0 +1,51 @@
+package com.microservice.monitor.latency.util;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * Streams edges of input file (i.e. AB5,BC4) to consumer without building the graph,
+ * so every process keeps only the part of topology it needs. Service names are upper cased.
+ */
+public class TopologyReader {
+
+    @FunctionalInterface
+    public interface EdgeConsumer {
+        void accept(String source, String destination, int weight);
+    }
+
+    private TopologyReader() {
+    }
+
+    /**
+     * Method that reads input file and passes every edge to consumer
+     * @param inputFile
+     * @param consumer
+     * @throws IOException
+     */
+    public static void read(String inputFile, EdgeConsumer consumer) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new FileReader(inputFile))) {
+            String row;
+            while ((row = reader.readLine()) != null) {
+                for (String s : row.split(",")) {
+                    String edge = s.trim();
+                    if (edge.length() < 3) {
+                        continue;
+                    }
+                    if (!Character.isLetter(edge.charAt(0)) || !Character.isLetter(edge.charAt(1))) {
+                        throw new IOException("Malformed edge: " + edge);
+                    }
+                    try {
+                        // Service names are case insensitive, same as in queries
+                        consumer.accept(edge.substring(0, 1).toUpperCase(Locale.ROOT), edge.substring(1, 2).toUpperCase(Locale.ROOT),
+                                Integer.parseInt(edge.substring(2)));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("Malformed edge: " + edge, e);
+                    }
+                }
+            }
+        }
+    }
+}
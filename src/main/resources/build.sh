@@ -10,8 +10,10 @@ mkdir -p ~/LatencyMonitor/results
 cp -R ./target/lib  ~/LatencyMonitor/ > /dev/null
 echo "Setup input.txt..."
 cp ./src/main/resources/input.txt ~/LatencyMonitor/
-echo "Setup log4j properties..."
-cp ./src/main/resources/log4j.properties ~/LatencyMonitor/
+echo "Setup queries..."
+cp ./src/main/resources/queries.txt ~/LatencyMonitor/
+echo "Setup logback configuration..."
+cp ./src/main/resources/logback.xml ~/LatencyMonitor/
 echo "Deploy LatencyMonitor..."
 cp ./target/LatencyMonitor.jar ~/LatencyMonitor/
 echo "Setup execute script..."
@@ -2,4 +2,4 @@
 
 cd ~/LatencyMonitor
 
-java -jar LatencyMonitor.jar ./input.txt
\ No newline at end of file
+java -Dlogback.configurationFile=./logback.xml -jar LatencyMonitor.jar ./input.txt ./queries.txt
\ No newline at end of file
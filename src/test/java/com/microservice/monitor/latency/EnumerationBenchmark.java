@@ -0,0 +1,76 @@
+package com.microservice.monitor.latency;
+
+import com.microservice.monitor.latency.util.Node;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of trace enumeration under heavy miss rate, where almost every query
+ * ends with "NO SUCH TRACE" warning. It is not part of test suite, run it with:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.microservice.monitor.latency.EnumerationBenchmark -Dexec.args="4 5"
+ * </pre>
+ * Arguments are number of threads and duration in seconds.
+ */
+public class EnumerationBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        // Warm up
+        run(threads, 1);
+        long operations = run(threads, seconds);
+        System.out.printf("threads=%d operations=%d throughput=%.0f ops/s%n",
+                threads, operations, operations / (double) seconds);
+    }
+
+    private static long run(int threads, int seconds) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<Long>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                // Graph is not thread safe, so every thread gets its own copy
+                Map<String, Node> nodes = new HashMap<>();
+                GraphWeighted graph = graph(nodes);
+                long operations = 0;
+                while (System.nanoTime() < deadline) {
+                    // Misses - every call logs warning
+                    graph.getPathWeight("AED");
+                    graph.getPathWeight("ADAB");
+                    graph.getNumberOfTracesBySelection(nodes.get("A"), Selection.MAX_HOOPS, 3);
+                    graph.getNumberOfTracesBySelection(nodes.get("C"), nodes.get("A"), Selection.EXACT_HOOPS, 4);
+                    // Hit - enumeration without warnings
+                    graph.getNumberOfTracesBySelection(nodes.get("C"), Selection.MAX_HOOPS, 3);
+                    operations += 5;
+                }
+                return operations;
+            }));
+        }
+        long total = 0;
+        for (Future<Long> future : futures) {
+            total += future.get();
+        }
+        executor.shutdown();
+        return total;
+    }
+
+    private static GraphWeighted graph(Map<String, Node> nodes) {
+        GraphWeighted graph = new GraphWeighted();
+        for (String edge : "AB5,BC4,CD8,DC8,DE6,AD5,CE2,EB3,AE7".split(",")) {
+            Node source = nodes.computeIfAbsent(edge.substring(0, 1), Node::new);
+            Node destination = nodes.computeIfAbsent(edge.substring(1, 2), Node::new);
+            graph.addEdge(source, destination, Integer.parseInt(edge.substring(2)));
+        }
+        return graph;
+    }
+}
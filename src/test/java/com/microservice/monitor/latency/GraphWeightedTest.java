@@ -4,6 +4,8 @@ import com.microservice.monitor.latency.util.Node;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class GraphWeightedTest {
@@ -56,11 +58,12 @@ class GraphWeightedTest {
     void testGetNumberOfTracesByMaxHoops() {
         setupAllEdges();
 
-        // Get number of traces by maximum number of hoops
-        // is currently supported only for same source/target node.
         assertEquals(2,gw.getNumberOfTracesBySelection(C,C,Selection.MAX_HOOPS,3));
         assertEquals(6,gw.getNumberOfTracesBySelection(C,Selection.MAX_HOOPS,5));
         assertEquals(0,gw.getNumberOfTracesBySelection(A,Selection.MAX_HOOPS,3));
+        // A-B-C, A-D-C and A-E-B-C, there is no edge back to A
+        assertEquals(3,gw.getNumberOfTracesBySelection(A,C,Selection.MAX_HOOPS,3));
+        assertEquals(0,gw.getNumberOfTracesBySelection(C,A,Selection.MAX_HOOPS,3));
     }
 
     @Test
@@ -77,9 +80,12 @@ class GraphWeightedTest {
     void testGetNumberOfTracesByMaxLatency() {
         setupAllEdges();
 
-        // Retrieving number of paths is current supported only for same source - target node
         assertEquals(7,gw.getNumberOfTracesBySelection(C,C,Selection.MAX_LATENCY,30));
         assertEquals(0,gw.getNumberOfTracesBySelection(A,A,Selection.MAX_LATENCY,30));
+        assertEquals(11,gw.getNumberOfTracesBySelection(A,C,Selection.MAX_LATENCY,30));
+        // B-C, B-C-D-C, B-C-E-B-C, B-C-D-C-E-B-C, B-C-D-E-B-C, B-C-E-B-C-D-C, B-C-E-B-C-E-B-C
+        assertEquals(7,gw.getNumberOfTracesBySelection(B,C,Selection.MAX_LATENCY,30));
+        assertEquals(0,gw.getNumberOfTracesBySelection(C,A,Selection.MAX_LATENCY,30));
     }
 
     @Test
@@ -93,6 +99,50 @@ class GraphWeightedTest {
         assertEquals(0,  gw.getShortestPathLatency(B,A));
     }
 
+    @Test
+    void testGetShortestPathLatencies() {
+        setupAllEdges();
+
+        Map<Node, Integer> latencies = gw.getShortestPathLatencies(A);
+        assertEquals(5, latencies.get(B));
+        assertEquals(9, latencies.get(C));
+        assertEquals(5, latencies.get(D));
+        assertEquals(7, latencies.get(E));
+        assertEquals(null, latencies.get(A));
+        assertEquals(9, gw.getShortestPathLatencies(B).get(B));
+    }
+
+    @Test
+    void testGetConstrainedShortestPath() {
+        setupAllEdges();
+
+        assertEquals(9, gw.getShortestPathLatency(A, C, new PathConstraints()));
+        assertEquals(13, gw.getShortestPathLatency(A, C, new PathConstraints().exclude(B)));
+        assertEquals(0, gw.getShortestPathLatency(A, C, new PathConstraints().maxHops(1)));
+        assertEquals(14, gw.getShortestPathLatency(A, C, new PathConstraints().via(E)));
+        assertEquals(0, gw.getShortestPathLatency(A, C, new PathConstraints().exclude(B).via(E)));
+        assertEquals(9, gw.getShortestPathLatency(C, C, new PathConstraints()));
+        assertEquals(16, gw.getShortestPathLatency(C, C, new PathConstraints().maxHops(2)));
+        assertEquals(16, gw.getShortestPathLatency(C, C, new PathConstraints().exclude(E)));
+        assertEquals(21, gw.getShortestPathLatency(B, B, new PathConstraints().via(D)));
+        assertEquals(0, gw.getShortestPathLatency(A, A, new PathConstraints()));
+        assertEquals(0, gw.getShortestPathLatency(A, C, new PathConstraints().exclude(C)));
+    }
+
+    @Test
+    void testGetConstrainedShortestPathByHops() {
+        gw.addEdge(A, B, 1);
+        gw.addEdge(B, C, 1);
+        gw.addEdge(C, D, 1);
+        gw.addEdge(A, C, 5);
+        gw.addEdge(A, D, 10);
+
+        // Cheaper label with more hops must not dominate label with fewer hops
+        assertEquals(3, gw.getShortestPathLatency(A, D, new PathConstraints().maxHops(3)));
+        assertEquals(6, gw.getShortestPathLatency(A, D, new PathConstraints().maxHops(2)));
+        assertEquals(10, gw.getShortestPathLatency(A, D, new PathConstraints().maxHops(1)));
+    }
+
     private void setupAllEdges() {
         gw.addEdge(A, B, 5);
         gw.addEdge(A, D, 5);
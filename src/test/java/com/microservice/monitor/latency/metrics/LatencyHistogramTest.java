@@ -0,0 +1,34 @@
+package com.microservice.monitor.latency.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMeanMicros());
+        assertEquals(0, histogram.getP99Micros());
+    }
+
+    @Test
+    void testRecord() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(10_000);
+        }
+        histogram.record(5_000_000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(59, histogram.getMeanMicros());
+        assertEquals(5_000, histogram.getMaxMicros());
+        // 10us falls into [8192ns, 16384ns) bucket
+        assertEquals(16, histogram.getP50Micros());
+        assertEquals(16, histogram.getP99Micros());
+        assertTrue(histogram.getP50Micros() >= 10);
+    }
+}
@@ -0,0 +1,113 @@
+package com.microservice.monitor.latency.query;
+
+import com.microservice.monitor.latency.GraphWeighted;
+import com.microservice.monitor.latency.Selection;
+import com.microservice.monitor.latency.util.Node;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class QueryExecutorTest {
+    private GraphWeighted gw;
+    private Map<String, Node> nodes;
+
+    @BeforeEach
+    public void setUp(){
+        gw = new GraphWeighted();
+        nodes = new HashMap<>();
+        for (String edge : "AB5,BC4,CD8,DC8,DE6,AD5,CE2,EB3,AE7".split(",")) {
+            Node source = nodes.computeIfAbsent(edge.substring(0, 1), Node::new);
+            Node destination = nodes.computeIfAbsent(edge.substring(1, 2), Node::new);
+            gw.addEdge(source, destination, Integer.parseInt(edge.substring(2)));
+        }
+    }
+
+    @Test
+    void testParse() {
+        Query query = Query.parse("count C C max_hops 3");
+        assertEquals(QueryType.COUNT, query.getType());
+        assertEquals(Selection.MAX_HOOPS, query.getSelection());
+        assertEquals(3, query.getValue());
+        assertEquals(Arrays.asList("A", "E", "B"), Query.parse("weight a-e-b").getPath());
+        assertEquals(Query.parse("shortest A C"), Query.parse("SHORTEST a c"));
+
+        Query constrained = Query.parse("shortest A C via e avoid D,F max_hops 4 avoid B");
+        assertEquals(4, constrained.getMaxHops());
+        assertEquals(Arrays.asList("B", "D", "F"), constrained.getAvoid());
+        assertEquals(Arrays.asList("E"), constrained.getVia());
+        assertEquals(constrained, Query.parse(constrained.toString()));
+
+        assertThrows(IllegalArgumentException.class, () -> Query.parse("weight A"));
+        assertThrows(IllegalArgumentException.class, () -> Query.parse("shortest A C avoid"));
+        assertThrows(IllegalArgumentException.class, () -> Query.parse("shortest A C skip D"));
+        assertThrows(IllegalArgumentException.class, () -> Query.parse("count C C max_hops"));
+        assertThrows(IllegalArgumentException.class, () -> Query.parse("longest A C"));
+        // Services are named by single letter, names that can not exist in input are rejected
+        assertThrows(IllegalArgumentException.class, () -> Query.parse("weight AB-CD"));
+        assertThrows(IllegalArgumentException.class, () -> Query.parse("weight A--B"));
+        assertThrows(IllegalArgumentException.class, () -> Query.parse("count A1 C max_hops 3"));
+        assertThrows(IllegalArgumentException.class, () -> Query.parse("shortest A C avoid D,"));
+        assertThrows(IllegalArgumentException.class, () -> Query.parse("shortest A C via EB"));
+    }
+
+    @Test
+    void testExecuteAllInInputOrder() throws IOException {
+        String file = "# comment\n"
+                + "weight A-B-C\nweight A-D\nweight A-D-C\nweight A-E-B-C-D\nweight A-E-D\n\n"
+                + "count C C max_hops 3\ncount A C exact_hops 4\n"
+                + "shortest A C\nshortest B B\ncount C C max_latency 30\n"
+                + "weight A-B-C\nshortest A Z\n"
+                + "shortest A C avoid B\nshortest A C via E\nshortest C C max_hops 2\nshortest A C via Z\n";
+        List<Query> queries = QueryReader.read(new BufferedReader(new StringReader(file)));
+
+        int none = QueryEngine.NO_SUCH_TRACE;
+        List<Integer> expected = Arrays.asList(9, 5, 13, 22, none, 2, 3, 9, 9, 7, 9, none, 13, 14, 16, none);
+        List<Integer> results = new ArrayList<>();
+        new QueryExecutor(gw.getStorage()).executeAll(queries, (query, result) -> results.add(result));
+        assertEquals(expected, results);
+
+    }
+
+    @Test
+    void testExecuteAllGroupsBySource() {
+        List<Query> queries = new ArrayList<>();
+        for (String query : "shortest A C,shortest B C,weight A-D,shortest A D,shortest B D,shortest A C,shortest C C avoid E".split(",")) {
+            queries.add(Query.parse(query));
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (Query query : queries) {
+            expected.add(new QueryExecutor(gw.getStorage()).execute(query));
+        }
+        assertEquals(Arrays.asList(9, 4, 5, 5, 12, 9, 16), expected);
+
+        List<Query> order = new ArrayList<>();
+        List<Integer> results = new ArrayList<>();
+        new QueryExecutor(gw.getStorage()).executeAll(queries, (query, result) -> {
+            order.add(query);
+            results.add(result);
+        });
+        assertEquals(queries, order);
+        assertEquals(expected, results);
+    }
+
+    @Test
+    void testCountFromSourceToTarget() {
+        QueryExecutor executor = new QueryExecutor(gw.getStorage());
+        assertEquals(3, executor.execute(Query.parse("count A C max_hops 3")));
+        assertEquals(0, executor.execute(Query.parse("count C A max_hops 3")));
+        assertEquals(11, executor.execute(Query.parse("count A C max_latency 30")));
+        assertEquals(7, executor.execute(Query.parse("count B C max_latency 30")));
+        assertEquals(0, executor.execute(Query.parse("count C A exact_hops 4")));
+    }
+}
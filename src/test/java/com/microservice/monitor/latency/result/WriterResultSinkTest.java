@@ -0,0 +1,63 @@
+package com.microservice.monitor.latency.result;
+
+import com.microservice.monitor.latency.query.Query;
+import com.microservice.monitor.latency.query.QueryEngine;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class WriterResultSinkTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testText() throws IOException {
+        assertEquals(Arrays.asList("1. 9", "2. NO SUCH TRACE", "3. 2", "4. 13", "5. 0", "6. 0"), writeResults(ResultFormat.TEXT));
+    }
+
+    @Test
+    void testCsv() throws IOException {
+        assertEquals(Arrays.asList(
+                "index,type,query,result",
+                "1,weight,weight A-B-C,9",
+                "2,weight,weight A-E-D,",
+                "3,count,count C C max_hops 3,2",
+                "4,shortest,\"shortest A C avoid B,D via E\",13",
+                "5,shortest,shortest C A,",
+                "6,count,count A A max_hops 3,0"), writeResults(ResultFormat.CSV));
+    }
+
+    @Test
+    void testJsonLines() throws IOException {
+        assertEquals(Arrays.asList(
+                "{\"index\":1,\"type\":\"weight\",\"query\":\"weight A-B-C\",\"result\":9}",
+                "{\"index\":2,\"type\":\"weight\",\"query\":\"weight A-E-D\",\"result\":null}",
+                "{\"index\":3,\"type\":\"count\",\"query\":\"count C C max_hops 3\",\"result\":2}",
+                "{\"index\":4,\"type\":\"shortest\",\"query\":\"shortest A C avoid B,D via E\",\"result\":13}",
+                "{\"index\":5,\"type\":\"shortest\",\"query\":\"shortest C A\",\"result\":null}",
+                "{\"index\":6,\"type\":\"count\",\"query\":\"count A A max_hops 3\",\"result\":0}"),
+                writeResults(ResultFormat.JSONL));
+    }
+
+    private List<String> writeResults(ResultFormat format) throws IOException {
+        Path file = dir.resolve("results").resolve("results." + format.name().toLowerCase());
+        try (ResultSink sink = WriterResultSink.toFile(file, format)) {
+            sink.write(1, Query.parse("weight A-B-C"), 9);
+            sink.write(2, Query.parse("weight A-E-D"), QueryEngine.NO_SUCH_TRACE);
+            sink.write(3, Query.parse("count C C max_hops 3"), 2);
+            sink.write(4, Query.parse("shortest A C avoid D,B via E"), 13);
+            sink.write(5, Query.parse("shortest C A"), QueryEngine.NO_SUCH_TRACE);
+            sink.write(6, Query.parse("count A A max_hops 3"), 0);
+        }
+        return Files.readAllLines(file, StandardCharsets.UTF_8);
+    }
+}
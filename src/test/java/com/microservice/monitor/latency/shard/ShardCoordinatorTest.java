@@ -0,0 +1,155 @@
+package com.microservice.monitor.latency.shard;
+
+import com.microservice.monitor.latency.GraphWeighted;
+import com.microservice.monitor.latency.query.Query;
+import com.microservice.monitor.latency.query.QueryEngine;
+import com.microservice.monitor.latency.query.QueryExecutor;
+import com.microservice.monitor.latency.util.Node;
+import com.microservice.monitor.latency.util.TopologyReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardCoordinatorTest {
+    private static final String EDGES = "AB5,BC4,CD8,DC8,DE6,AD5,CE2,EB3,AE7";
+
+    @TempDir
+    Path dir;
+
+    private String inputFile;
+    private Map<String, Set<String>> neighbours;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        Path input = dir.resolve("input.txt");
+        Files.write(input, EDGES.getBytes(StandardCharsets.UTF_8));
+        inputFile = input.toString();
+
+        neighbours = new HashMap<>();
+        TopologyReader.read(inputFile, (source, destination, weight) -> {
+            neighbours.computeIfAbsent(source, key -> new HashSet<>()).add(destination);
+            neighbours.computeIfAbsent(destination, key -> new HashSet<>()).add(source);
+        });
+    }
+
+    @Test
+    void testEdgeCutPartitioner() {
+        Map<String, Integer> partition = new EdgeCutPartitioner().partition(neighbours, 2);
+        assertEquals(neighbours.keySet(), partition.keySet());
+        int[] load = new int[2];
+        partition.values().forEach(shard -> load[shard]++);
+        assertEquals(3, load[0]);
+        assertEquals(2, load[1]);
+    }
+
+    @Test
+    void testServiceGroupPartitioner() {
+        Map<String, String> groups = new HashMap<>();
+        groups.put("A", "edge");
+        groups.put("B", "edge");
+        groups.put("C", "core");
+        Map<String, Integer> partition = new ServiceGroupPartitioner(groups).partition(neighbours, 2);
+        assertEquals(partition.get("A"), partition.get("B"));
+        assertTrue(!partition.get("A").equals(partition.get("C")));
+        assertEquals(5, partition.size());
+    }
+
+    @Test
+    void testQueriesMatchSingleGraph() throws IOException {
+        for (int shardCount = 1; shardCount <= 3; shardCount++) {
+            Map<String, Integer> partition = new EdgeCutPartitioner().partition(neighbours, shardCount);
+            List<ShardServer> servers = new ArrayList<>();
+            List<InetSocketAddress> addresses = new ArrayList<>();
+            for (int shard = 0; shard < shardCount; shard++) {
+                ShardServer server = new ShardServer(GraphShard.load(inputFile, partition, shard));
+                server.start();
+                servers.add(server);
+                addresses.add(new InetSocketAddress(InetAddress.getLoopbackAddress(), server.getPort()));
+            }
+
+            try (ShardCoordinator coordinator = new ShardCoordinator(partition, addresses)) {
+                assertSameResults(coordinator);
+            } finally {
+                for (ShardServer server : servers) {
+                    server.stop();
+                }
+            }
+        }
+    }
+
+    @Test
+    void testShardSummaryHasOnlyExits() throws IOException {
+        Map<String, Integer> partition = new HashMap<>();
+        for (String service : Arrays.asList("A", "B", "C")) {
+            partition.put(service, 0);
+        }
+        partition.put("D", 1);
+        partition.put("E", 1);
+        GraphShard shard = GraphShard.load(inputFile, partition, 0);
+
+        // A, B and C are local, only A and C have edges to D and E
+        assertEquals("C:9", shard.handle("SUMMARY A"));
+        assertEquals("9", shard.handle("LATENCY A C"));
+        assertEquals("0", shard.handle("LATENCY C C"));
+        assertEquals("0", shard.handle("WEIGHT A C"));
+        assertEquals("5", shard.handle("WEIGHT A D"));
+    }
+
+    @Test
+    void testLaunchShardProcesses() throws IOException {
+        try (ShardCoordinator coordinator = ShardCoordinator.launch(inputFile, new EdgeCutPartitioner(), 2)) {
+            assertEquals(22, coordinator.execute(Query.parse("weight A-E-B-C-D")));
+            assertEquals(9, coordinator.execute(Query.parse("shortest A C")));
+            assertEquals(9, coordinator.execute(Query.parse("shortest B B")));
+        }
+    }
+
+    private void assertSameResults(ShardCoordinator coordinator) {
+        Map<String, Node> nodes = new HashMap<>();
+        GraphWeighted graph = new GraphWeighted();
+        for (String edge : EDGES.split(",")) {
+            Node source = nodes.computeIfAbsent(edge.substring(0, 1), Node::new);
+            Node destination = nodes.computeIfAbsent(edge.substring(1, 2), Node::new);
+            graph.addEdge(source, destination, Integer.parseInt(edge.substring(2)));
+        }
+
+        QueryExecutor executor = new QueryExecutor(graph.getStorage());
+        for (String path : Arrays.asList("A-B-C", "A-D", "A-D-C", "A-E-B-C-D", "A-E-D", "C-E-B-C-D-C", "B-A")) {
+            Query query = Query.parse("weight " + path);
+            assertEquals(executor.execute(query), coordinator.execute(query), path);
+        }
+        assertEquals(QueryEngine.NO_SUCH_TRACE, coordinator.execute(Query.parse("weight A-E-D")));
+        for (String start : nodes.keySet()) {
+            for (String end : nodes.keySet()) {
+                Query query = Query.parse("shortest " + start + " " + end);
+                assertEquals(executor.execute(query), coordinator.execute(query), start + "-" + end);
+            }
+        }
+        assertEquals(QueryEngine.NO_SUCH_TRACE, coordinator.execute(Query.parse("shortest C A")));
+        assertThrows(IllegalArgumentException.class, () -> coordinator.execute(Query.parse("count C C max_hops 3")));
+
+        // Unsupported query is rejected before any result is handed out
+        List<Query> queries = Arrays.asList(Query.parse("weight A-B-C"), Query.parse("shortest A C avoid B"));
+        List<Query> executed = new ArrayList<>();
+        assertThrows(IllegalArgumentException.class, () -> coordinator.executeAll(queries, (query, result) -> executed.add(query)));
+        assertTrue(executed.isEmpty());
+    }
+}
@@ -0,0 +1,137 @@
+package com.microservice.monitor.latency.storage;
+
+import com.microservice.monitor.latency.GraphWeighted;
+import com.microservice.monitor.latency.query.Query;
+import com.microservice.monitor.latency.query.QueryExecutor;
+import com.microservice.monitor.latency.query.QueryReader;
+import com.microservice.monitor.latency.util.Node;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OffHeapGraphStorageTest {
+    private static final String EDGES = "AB5,BC4,CD8,DC8,DE6,AD5,CE2,EB3,AE7";
+    private static final String[] SERVICES = {"A", "B", "C", "D", "E"};
+
+    @TempDir
+    Path dir;
+
+    private String inputFile;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        // AB1 is overwritten by AB5 same as in GraphWeighted
+        inputFile = write("input.txt", "AB1," + EDGES);
+    }
+
+    @Test
+    void testDirectStorage() throws IOException {
+        try (GraphStorage storage = OffHeapGraphStorage.load(inputFile)) {
+            assertEquals(5, storage.nodeCount());
+            assertEquals(9, storage.edgeCount());
+            assertSameResults(EDGES, storage);
+        }
+    }
+
+    @Test
+    void testMappedStorage() throws IOException {
+        Path mapped = dir.resolve("graph.bin");
+        try (GraphStorage storage = OffHeapGraphStorage.load(inputFile, mapped)) {
+            // Edge records are reserved for every input edge, including overwritten ones
+            assertEquals(5 * 16 + 10 * 8, Files.size(mapped));
+            assertSameResults(EDGES, storage);
+        }
+    }
+
+    @Test
+    void testCaseInsensitiveServices() throws IOException {
+        try (GraphStorage storage = OffHeapGraphStorage.load(write("lower.txt", "ab5,bC4"))) {
+            QueryExecutor executor = new QueryExecutor(storage);
+            assertEquals(5, executor.execute(Query.parse("weight a-b")));
+            assertEquals(9, executor.execute(Query.parse("shortest A c")));
+        }
+    }
+
+    @Test
+    void testRandomGraphs() throws IOException {
+        String edges = "CD9,BD2,ED2,DC8,BE3,CA9,AE4";
+        try (GraphStorage storage = OffHeapGraphStorage.load(write("example.txt", edges))) {
+            // Only A-E-D-C, C-A is not traversed backwards
+            assertEquals(1, new QueryExecutor(storage).execute(Query.parse("count A C max_hops 3")));
+            assertSameResults(edges, storage);
+        }
+
+        Random random = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            StringBuilder graph = new StringBuilder();
+            for (String source : SERVICES) {
+                for (String destination : SERVICES) {
+                    if (!source.equals(destination) && random.nextInt(3) == 0) {
+                        if (graph.length() > 0) {
+                            graph.append(',');
+                        }
+                        graph.append(source).append(destination).append(1 + random.nextInt(9));
+                    }
+                }
+            }
+            if (graph.length() == 0) {
+                continue;
+            }
+            try (GraphStorage storage = OffHeapGraphStorage.load(write("random" + i + ".txt", graph.toString()))) {
+                assertSameResults(graph.toString(), storage);
+            }
+        }
+    }
+
+    private String write(String name, String edges) throws IOException {
+        Path input = dir.resolve(name);
+        Files.write(input, edges.getBytes(StandardCharsets.UTF_8));
+        return input.toString();
+    }
+
+    private void assertSameResults(String edges, GraphStorage storage) throws IOException {
+        StringBuilder file = new StringBuilder();
+        for (String start : SERVICES) {
+            for (String end : SERVICES) {
+                file.append("weight ").append(start).append('-').append(end).append('\n');
+                file.append("shortest ").append(start).append(' ').append(end).append('\n');
+                file.append("shortest ").append(start).append(' ').append(end).append(" avoid B\n");
+                file.append("shortest ").append(start).append(' ').append(end).append(" max_hops 2\n");
+                file.append("shortest ").append(start).append(' ').append(end).append(" via D\n");
+                file.append("count ").append(start).append(' ').append(end).append(" max_hops 3\n");
+                file.append("count ").append(start).append(' ').append(end).append(" exact_hops 4\n");
+                file.append("count ").append(start).append(' ').append(end).append(" max_latency 30\n");
+            }
+        }
+        file.append("weight A-E-B-C-D\nweight A-E-D\ncount C C max_hops 5\n");
+        List<Query> queries = QueryReader.read(new BufferedReader(new StringReader(file.toString())));
+
+        Map<String, Node> nodes = new HashMap<>();
+        GraphWeighted graph = new GraphWeighted();
+        for (String edge : edges.split(",")) {
+            Node source = nodes.computeIfAbsent(edge.substring(0, 1), Node::new);
+            Node destination = nodes.computeIfAbsent(edge.substring(1, 2), Node::new);
+            graph.addEdge(source, destination, Integer.parseInt(edge.substring(2)));
+        }
+        List<Integer> expected = new ArrayList<>();
+        new QueryExecutor(graph.getStorage()).executeAll(queries, (query, result) -> expected.add(result));
+        List<Integer> actual = new ArrayList<>();
+        new QueryExecutor(storage).executeAll(queries, (query, result) -> actual.add(result));
+
+        assertEquals(expected, actual, edges);
+    }
+}
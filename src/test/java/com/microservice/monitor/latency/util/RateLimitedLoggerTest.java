@@ -0,0 +1,39 @@
+package com.microservice.monitor.latency.util;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RateLimitedLoggerTest {
+
+    @Test
+    void testSuppressedReportedOnFlush() {
+        Logger logger = (Logger) LoggerFactory.getLogger(RateLimitedLoggerTest.class);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        try {
+            RateLimitedLogger traceLogger = new RateLimitedLogger(logger, 2);
+            for (int i = 0; i < 5; i++) {
+                traceLogger.warn("NO SUCH TRACE: {}-{}", "A", "B");
+            }
+            traceLogger.flush();
+            traceLogger.flush();
+
+            List<String> messages = appender.list.stream()
+                    .map(ILoggingEvent::getFormattedMessage)
+                    .collect(Collectors.toList());
+            assertEquals(List.of("NO SUCH TRACE: A-B", "NO SUCH TRACE: A-B",
+                    "3 messages suppressed: NO SUCH TRACE: {}-{}"), messages);
+        } finally {
+            logger.detachAppender(appender);
+        }
+    }
+}